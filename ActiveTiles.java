@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keep track of which parts of a field are active. The field is cut
+ * into square tiles, and each tile remembers the last step on which
+ * anything changed in it or in a square bordering it. A tile where
+ * nothing has changed for longer than any thing sleeps is quiet: every
+ * thing there has acted since the last change without changing
+ * anything, and will keep doing so until something nearby changes.
+ * (A plant whose neighbours are all full, for instance, can never
+ * spread.) A deer always moves or dies, so a tile with a deer is never
+ * quiet.
+ *
+ * Instead of waking the things of a quiet tile again and again, the
+ * sequential engine puts them to sleep here. The first change in or
+ * next to the tile wakes them all, so a step costs nothing for the
+ * quiet parts of the field.
+ *
+ * Changes may be recorded on several threads at once, but things may
+ * only sleep while a single thread runs the step.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class ActiveTiles
+{
+    // The number of steps after a change before a tile is quiet;
+    // longer than any thing sleeps between acts.
+    public static final int QUIET_STEPS = TimingWheel.HORIZON;
+
+    // The side of each tile, in squares.
+    private int tileSize;
+    // The width of the field, in squares.
+    private int width;
+    // The number of tiles across and down the field.
+    private int tilesAcross, tilesDown;
+    // The last step on which a square in or bordering each tile changed.
+    private int[] lastChange;
+    // Whether each tile has things asleep in it.
+    private boolean[] asleep;
+    // The things asleep in each tile; null until a tile first sleeps.
+    private List<List<Thing>> sleepers;
+    // The tiles woken since their sleepers were last taken.
+    private int[] woken;
+    // The number of tiles in woken.
+    private int wokenCount;
+
+    /**
+     * Track the activity of a field, starting with every tile active.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param tileSize The side of each tile, in squares.
+     * @param step The step the field is on.
+     */
+    public ActiveTiles(int depth, int width, int tileSize, int step)
+    {
+        if(tileSize <= 0) {
+            System.out.println("Tiles must be at least one square across.");
+            System.out.println("Using default values.");
+            tileSize = 1;
+        }
+        this.tileSize = tileSize;
+        this.width = width;
+        tilesAcross = (width + tileSize - 1) / tileSize;
+        tilesDown = (depth + tileSize - 1) / tileSize;
+        int tiles = tilesAcross * tilesDown;
+        lastChange = new int[tiles];
+        asleep = new boolean[tiles];
+        sleepers = new ArrayList<>(tiles);
+        for(int tile = 0; tile < tiles; tile++) {
+            sleepers.add(null);
+        }
+        woken = new int[tiles];
+        clear(step);
+    }
+
+    /**
+     * Record that a square changed: the tile it is in, and any tile
+     * it borders, become active, and their sleepers are woken.
+     * @param index The index of the square.
+     * @param step The step on which it changed.
+     */
+    public void touch(int index, int step)
+    {
+        int row = index / width;
+        int col = index - row * width;
+        int tileRow = row / tileSize;
+        int tileCol = col / tileSize;
+        int top = row % tileSize == 0 && tileRow > 0 ? tileRow - 1 : tileRow;
+        int bottom = row % tileSize == tileSize - 1 && tileRow < tilesDown - 1 ? tileRow + 1 : tileRow;
+        int left = col % tileSize == 0 && tileCol > 0 ? tileCol - 1 : tileCol;
+        int right = col % tileSize == tileSize - 1 && tileCol < tilesAcross - 1 ? tileCol + 1 : tileCol;
+        for(int r = top; r <= bottom; r++) {
+            for(int c = left; c <= right; c++) {
+                int tile = r * tilesAcross + c;
+                lastChange[tile] = step;
+                if(asleep[tile]) {
+                    asleep[tile] = false;
+                    woken[wokenCount++] = tile;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param index The index of a square.
+     * @param step The step being run.
+     * @return true if the square's tile is quiet.
+     */
+    public boolean isQuiet(int index, int step)
+    {
+        return step - lastChange[tileOf(index)] > QUIET_STEPS;
+    }
+
+    /**
+     * Put a thing in a quiet tile to sleep until the tile is woken.
+     * @param thing The thing, which must not be scheduled elsewhere.
+     * @param index The index of its square.
+     */
+    public void sleep(Thing thing, int index)
+    {
+        int tile = tileOf(index);
+        List<Thing> sleeping = sleepers.get(tile);
+        if(sleeping == null) {
+            sleeping = new ArrayList<>();
+            sleepers.set(tile, sleeping);
+        }
+        sleeping.add(thing);
+        asleep[tile] = true;
+    }
+
+    /**
+     * @return true if any tile has been woken since its sleepers
+     *         were last taken.
+     */
+    public boolean hasWoken()
+    {
+        return wokenCount > 0;
+    }
+
+    /**
+     * Take the viable sleepers of the tiles woken since this was last
+     * called, in the order they fell asleep, tile by tile.
+     * @param things The list to receive the things.
+     */
+    public void takeWoken(List<Thing> things)
+    {
+        for(int i = 0; i < wokenCount; i++) {
+            takeSleepers(woken[i], things);
+        }
+        wokenCount = 0;
+    }
+
+    /**
+     * Wake every tile, taking all the viable sleepers.
+     * @param things The list to receive the things.
+     */
+    public void wakeAll(List<Thing> things)
+    {
+        for(int tile = 0; tile < asleep.length; tile++) {
+            if(asleep[tile]) {
+                asleep[tile] = false;
+                takeSleepers(tile, things);
+            }
+        }
+        takeWoken(things);
+    }
+
+    /**
+     * Return the fraction of the field that is active: the tiles in or
+     * next to which something has changed recently.
+     * @param step The step being run.
+     * @return The fraction of tiles that are not quiet.
+     */
+    public double getActiveFraction(int step)
+    {
+        int active = 0;
+        for(int changed : lastChange) {
+            if(step - changed <= QUIET_STEPS) {
+                active++;
+            }
+        }
+        return (double) active / lastChange.length;
+    }
+
+    /**
+     * @return The side of each tile, in squares.
+     */
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+
+    /**
+     * Forget every sleeper, and make every tile active as of the
+     * given step.
+     * @param step The step the field is on.
+     */
+    public void clear(int step)
+    {
+        Arrays.fill(lastChange, step);
+        Arrays.fill(asleep, false);
+        for(List<Thing> sleeping : sleepers) {
+            if(sleeping != null) {
+                sleeping.clear();
+            }
+        }
+        wokenCount = 0;
+    }
+
+    /**
+     * Move the viable sleepers of a tile into a list.
+     * @param tile The tile.
+     * @param things The list to receive the things.
+     */
+    private void takeSleepers(int tile, List<Thing> things)
+    {
+        List<Thing> sleeping = sleepers.get(tile);
+        if(sleeping != null) {
+            for(Thing thing : sleeping) {
+                if(thing.isViable()) {
+                    things.add(thing);
+                }
+            }
+            sleeping.clear();
+        }
+    }
+
+    /**
+     * @param index The index of a square.
+     * @return The index of the tile it is in.
+     */
+    private int tileOf(int index)
+    {
+        int row = index / width;
+        int col = index - row * width;
+        return (row / tileSize) * tilesAcross + col / tileSize;
+    }
+}
@@ -41,14 +41,10 @@ public abstract class Animal extends Organism
      */
     protected void setDead()
     {
-        boolean viable = isViable();
-        viable = false;
-        Field field = getField();
+        setNotViable();
         Location location = getLocation();
         if(location != null) {
-            field.clear(location);
-            location = null;
-            field = null;
+            leave(location);
         }
     }
     
@@ -0,0 +1,1074 @@
+import java.awt.GraphicsEnvironment;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+/**
+ * Measurements of the cost of the simulation on large fields.
+ * Each method prints its results, so they can be run from BlueJ
+ * or from the command line through main.
+ * 
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class Benchmark
+{
+    // The size of the large field used for measurements.
+    private static final int LARGE_FIELD = 1000;
+    // The size of the very large field used for storage measurements.
+    private static final int HUGE_FIELD = 2000;
+    // The number of untimed rounds used to warm up the JIT.
+    private static final int WARMUP_ROUNDS = 3;
+    // The size of the field used to time whole simulations.
+    private static final int SIMULATION_FIELD = 100;
+    // The number of steps timed in each whole simulation.
+    private static final int SIMULATION_STEPS = 100;
+    // The number of simulations in a timed ensemble.
+    private static final int ENSEMBLE_SIZE = 64;
+    // The size of the field of each simulation in an ensemble.
+    private static final int ENSEMBLE_FIELD = 40;
+    // The numbers of threads drawing random numbers at once.
+    private static final int[] CONTENDING_THREADS = { 1, 8, 32 };
+    // The number of random numbers drawn by all the threads together.
+    private static final int RANDOM_DRAWS = 32000000;
+    // The side of the tiles whose activity is tracked.
+    private static final int ACTIVE_TILE = 16;
+    // The numbers of squares disturbed each step on a quiet field.
+    private static final int[] DISTURBANCES = { 0, 10, 100, 1000, 10000 };
+    // The number of steps timed at each level of disturbance.
+    private static final int QUIET_STEPS = 10;
+    // The number of things removed one at a time in a die-off; fewer
+    // than the field holds, as each removal moves those after it.
+    private static final int DIE_OFF_SAMPLE = 100000;
+    // The number of plants held in column storage.
+    private static final int COLUMN_PLANTS = 10000000;
+    // The number of steps timed on column storage.
+    private static final int COLUMN_STEPS = 5;
+    // The number of steps of grass spreading timed with and without
+    // bitboards.
+    private static final int GRASS_STEPS = 10;
+    // The sizes of the square fields the bitboard kernels are timed on.
+    private static final int[] KERNEL_FIELDS = { 1024, 4096, 8192 };
+    // The number of times the bitboards are filled on each field.
+    private static final int KERNEL_ROUNDS = 10;
+    // The side of the field that is filled to capacity with plants.
+    private static final int SATURATED_FIELD = 500;
+    // The number of steps run on the full field.
+    private static final int SATURATED_STEPS = 20;
+    // The longest a step on the full field may take, per plant.
+    private static final long NANOS_PER_PLANT_LIMIT = 1000;
+    // The radii within which deer sense food.
+    private static final int[] PERCEPTION_RADII = { 1, 2, 4, 8 };
+    // The number of deer looking for food, and of plants coming and
+    // going, timed at each radius.
+    private static final int PERCEPTION_SAMPLE = 100000;
+    // The numbers of plants taken out and put back each step when
+    // timing region counts.
+    private static final int[] CHURN_RATES = { 100, 10000, 1000000 };
+    // The number of rectangles counted each step.
+    private static final int REGION_QUERIES = 1000;
+    // The side of each rectangle counted.
+    private static final int REGION_SIZE = 50;
+    // The number of steps timed for each way of counting.
+    private static final int REGION_STEPS = 5;
+    // The side of the field on which the cost of keeping region
+    // counts on the parallel engine is measured.
+    private static final int TRACKED_FIELD = 500;
+    // The number of steps measured on that field.
+    private static final int TRACKED_STEPS = 20;
+    // The number of deer finding their way to food.
+    private static final int NAVIGATING_DEER = 100000;
+    // The distance between the patches of grass the deer look for.
+    private static final int PATCH_SPACING = 100;
+    // The side of each patch of grass.
+    private static final int PATCH_SIZE = 5;
+
+    /**
+     * Constructor for objects of class Benchmark
+     */
+    public Benchmark()
+    {
+    }
+
+    /**
+     * Run every benchmark.
+     */
+    public static void main(String[] args)
+    {
+        Benchmark benchmark = new Benchmark();
+        benchmark.neighbourAllocation();
+        benchmark.storageFootprint();
+        benchmark.neighbourOrdering();
+        benchmark.viewThroughput();
+        benchmark.ensembleThroughput();
+        benchmark.randomContention();
+        benchmark.activeRegions();
+        benchmark.massDieOff();
+        benchmark.columnFootprint();
+        benchmark.grassBitboards();
+        benchmark.wideKernels();
+        benchmark.saturatedSpread();
+        benchmark.foodPerception();
+        benchmark.regionQueries();
+        benchmark.regionTracking();
+        benchmark.deerNavigation();
+    }
+
+    /**
+     * Measure the memory allocated by one step's worth of neighbour
+     * lookups on a large field: every square looks at the plants in
+     * each of its neighbours, as Deer.findFood and the plants' spread
+     * methods do. Lookups through adjacentLocations and through
+     * neighbours are measured separately.
+     */
+    public void neighbourAllocation()
+    {
+        Field field = new Field(LARGE_FIELD, LARGE_FIELD);
+        for(int pass = 0; pass < 2; pass++) {
+            boolean useList = (pass == 0);
+            long sum = 0;
+            for(int round = 0; round < WARMUP_ROUNDS; round++) {
+                sum += neighbourSweep(field, useList);
+            }
+            long before = allocatedBytes();
+            long start = System.nanoTime();
+            sum += neighbourSweep(field, useList);
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - before;
+            System.out.println((useList ? "adjacentLocations" : "neighbours") 
+                               + " on a " + LARGE_FIELD + "x" + LARGE_FIELD + " field: "
+                               + (allocated / 1024) + " KB allocated per step, "
+                               + (elapsed / 1000000) + " ms (" + sum + ")");
+        }
+    }
+
+    /**
+     * Compare the memory used per square, and the time taken by a
+     * full-field species count, for each kind of field storage: for
+     * an empty field, and for a simulation populated with about as
+     * many grass plants as squares, as a grassy field has. The memory
+     * of the populated simulation includes its deer and plants, which
+     * are the same whatever the storage. Run with a heap of 4 GB.
+     */
+    public void storageFootprint()
+    {
+        int cells = HUGE_FIELD * HUGE_FIELD;
+        for(Field.Storage storage : Field.Storage.values()) {
+            long before = usedMemory();
+            Field empty = new Field(HUGE_FIELD, HUGE_FIELD, storage);
+            long emptyBytes = usedMemory() - before;
+            empty = null;
+            before = usedMemory();
+            Randomizer.reset();
+            Simulator simulator = new Simulator(HUGE_FIELD, HUGE_FIELD, cells / 20, cells, cells / 40,
+                                                false, storage);
+            long populatedBytes = usedMemory() - before;
+            Field field = simulator.getField();
+            long sum = 0;
+            for(int round = 0; round < WARMUP_ROUNDS; round++) {
+                sum += field.countSpecies()[Species.EMPTY];
+            }
+            long start = System.nanoTime();
+            sum += field.countSpecies()[Species.EMPTY];
+            long elapsed = System.nanoTime() - start;
+            System.out.println(storage + " storage on a " + HUGE_FIELD + "x" + HUGE_FIELD
+                               + " field: " + (emptyBytes / cells) + " bytes per square empty, "
+                               + (populatedBytes / cells) + " bytes per square populated, species count "
+                               + (elapsed / 1000000) + " ms (" + sum + ")");
+        }
+    }
+
+    /**
+     * Compare the cost per call of choosing a random order of the
+     * neighbours of a square: building and shuffling a list with
+     * Collections.shuffle, as adjacentLocations once did, against
+     * Field.neighbours. Also check that Field.neighbours makes every
+     * order of an interior square's neighbours equally likely.
+     */
+    public void neighbourOrdering()
+    {
+        Field field = new Field(3, 3);
+        Location centre = field.getLocation(1, 1);
+        Random rand = new Random(Randomizer.getSeed());
+        int calls = 10000000;
+        long sum = 0;
+        for(int pass = 0; pass < 2; pass++) {
+            boolean useShuffle = (pass == 0);
+            for(int round = 0; round <= WARMUP_ROUNDS; round++) {
+                long start = System.nanoTime();
+                sum += orderNeighbours(field, centre, rand, calls, useShuffle);
+                long elapsed = System.nanoTime() - start;
+                if(round == WARMUP_ROUNDS) {
+                    System.out.println((useShuffle ? "Collections.shuffle" : "neighbours")
+                                       + ": " + String.format("%.1f", (double) elapsed / calls)
+                                       + " ns per call (" + sum + ")");
+                }
+            }
+        }
+        
+        // Count how often each order comes up, identifying an order
+        // by the neighbour indices written in it.
+        int orders = 40320;
+        int samples = orders * 100;
+        HashMap<Long, Integer> seen = new HashMap<>();
+        int[] adjacent = new int[Field.MAX_NEIGHBOURS];
+        for(int i = 0; i < samples; i++) {
+            field.neighbours(centre, adjacent);
+            long key = 0;
+            for(int n : adjacent) {
+                key = key * 9 + n;
+            }
+            seen.merge(key, 1, Integer::sum);
+        }
+        double expected = (double) samples / orders;
+        double chiSquare = 0;
+        for(int count : seen.values()) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+        }
+        chiSquare += (orders - seen.size()) * expected;
+        System.out.println("neighbours: " + seen.size() + " of " + orders 
+                           + " orders seen; chi-square " + Math.round(chiSquare)
+                           + " for " + (orders - 1) + " degrees of freedom");
+    }
+
+    /**
+     * Compare the steps per second of a simulation run headless with
+     * one shown in a window. The view is skipped when there is no
+     * display, as on a java.awt.headless=true JVM.
+     */
+    public void viewThroughput()
+    {
+        for(int pass = 0; pass < 2; pass++) {
+            boolean showView = (pass == 1);
+            if(showView && GraphicsEnvironment.isHeadless()) {
+                System.out.println("with view: skipped, there is no display");
+            }
+            else {
+                Randomizer.reset();
+                int squares = SIMULATION_FIELD * SIMULATION_FIELD;
+                Simulator simulator = new Simulator(SIMULATION_FIELD, SIMULATION_FIELD, 
+                                                    squares / 20, squares / 5, squares / 40,
+                                                    showView);
+                long start = System.nanoTime();
+                for(int step = 0; step < SIMULATION_STEPS; step++) {
+                    simulator.simulateOneStep();
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.println((showView ? "with view" : "headless") + " on a "
+                                   + SIMULATION_FIELD + "x" + SIMULATION_FIELD + " field: "
+                                   + String.format("%.1f", SIMULATION_STEPS * 1e9 / elapsed)
+                                   + " steps per second");
+            }
+        }
+    }
+
+    /**
+     * Measure the simulation steps per second of an ensemble of
+     * small simulations, run on one thread and on one thread per
+     * processor, and check that both give the same populations.
+     */
+    public void ensembleThroughput()
+    {
+        int squares = ENSEMBLE_FIELD * ENSEMBLE_FIELD;
+        Ensemble ensemble = new Ensemble(ENSEMBLE_FIELD, ENSEMBLE_FIELD,
+                                         squares / 20, squares / 5, squares / 40);
+        int processors = Runtime.getRuntime().availableProcessors();
+        ensemble.run(ENSEMBLE_SIZE, SIMULATION_STEPS, processors);
+        PopulationAggregator[] results = new PopulationAggregator[2];
+        for(int pass = 0; pass < 2; pass++) {
+            int threads = (pass == 0) ? 1 : processors;
+            results[pass] = ensemble.run(ENSEMBLE_SIZE, SIMULATION_STEPS, threads);
+            System.out.println("ensemble of " + ENSEMBLE_SIZE + " on " + threads + " threads: "
+                               + String.format("%.1f", ensemble.getStepsPerSecond())
+                               + " simulation steps per second");
+        }
+        boolean same = true;
+        for(int step = 0; step < results[0].getSteps(); step++) {
+            for(int code = 0; code < results[0].getSpeciesCount(); code++) {
+                same &= results[0].getTotal(step, code) == results[1].getTotal(step, code);
+            }
+        }
+        System.out.println(results[1].getDetails(SIMULATION_STEPS)
+                           + (same ? "(same for any number of threads)" : "(DIFFERS between runs)"));
+    }
+
+    /**
+     * Compare the time taken to draw random numbers on several threads
+     * at once from one shared java.util.Random, as the simulation once
+     * did, and from each thread's own stream given by Randomizer.
+     */
+    public void randomContention()
+    {
+        Random shared = new Random(Randomizer.getSeed());
+        for(int pass = 0; pass < 2; pass++) {
+            boolean useShared = (pass == 0);
+            for(int threads : CONTENDING_THREADS) {
+                long elapsed = 0;
+                for(int round = 0; round <= WARMUP_ROUNDS; round++) {
+                    elapsed = drawRandom(threads, useShared ? shared : null);
+                }
+                System.out.println((useShared ? "shared Random" : "Randomizer streams") 
+                                   + " on " + threads + " threads: "
+                                   + String.format("%.1f", RANDOM_DRAWS * 1e3 / elapsed)
+                                   + " million draws per second");
+            }
+        }
+    }
+
+    /**
+     * Measure the time taken by a step as a function of how much of
+     * the field is active. A very large field is filled with grass, so
+     * no grass can spread, and each step a number of squares lose a
+     * grass, which their neighbours then grow back into. Every grass
+     * is visited when due, and then only those in active tiles.
+     * The field holds 40 million grasses: run with a heap of 4 GB.
+     */
+    public void activeRegions()
+    {
+        Field field = new Field(HUGE_FIELD, HUGE_FIELD);
+        TimingWheel wheel = new TimingWheel();
+        for(int row = 0; row < HUGE_FIELD; row++) {
+            for(int col = 0; col < HUGE_FIELD; col++) {
+                Location location = field.getLocation(row, col);
+                for(int plant = 0; plant < Field.MAX_PLANTS; plant++) {
+                    Grass grass = new Grass(false, field, location);
+                    wheel.schedule(grass, grass.nextWake(0));
+                }
+            }
+        }
+        Random rand = new Random(Randomizer.getSeed());
+        for(int pass = 0; pass < 2; pass++) {
+            boolean skipQuiet = (pass == 1);
+            field.trackActivity(skipQuiet ? ACTIVE_TILE : 0);
+            for(int disturbed : DISTURBANCES) {
+                if(!skipQuiet && disturbed > DISTURBANCES[1]) {
+                    // Without skipping, the time hardly depends on it.
+                    break;
+                }
+                runQuiet(field, wheel, ActiveTiles.QUIET_STEPS + 1, disturbed, rand);
+                long start = System.nanoTime();
+                long[] work = runQuiet(field, wheel, QUIET_STEPS, disturbed, rand);
+                long elapsed = System.nanoTime() - start;
+                System.out.println((skipQuiet ? "skipping quiet tiles" : "visiting every grass")
+                                   + ", " + disturbed + " squares disturbed per step: "
+                                   + String.format("%.2f%%", work[1] * 100.0 / QUIET_STEPS / 1e6)
+                                   + " active, " + (elapsed / QUIET_STEPS / 1000000) + " ms per step, "
+                                   + (work[0] / QUIET_STEPS) + " acts per step");
+            }
+        }
+    }
+
+    /**
+     * Measure the time taken to remove the dead after a fire kills
+     * half of a million plants: with Iterator.remove on an ArrayList,
+     * one at a time, as the simulation once did; with removeIf; and
+     * with a ThingStore's single pass. Iterator.remove takes time in
+     * proportion to the square of the number of things, so it is timed
+     * on only the first DIE_OFF_SAMPLE things.
+     */
+    public void massDieOff()
+    {
+        Field field = new Field(LARGE_FIELD, LARGE_FIELD);
+        List<Thing> plants = new ArrayList<>();
+        for(int row = 0; row < LARGE_FIELD; row++) {
+            for(int col = 0; col < LARGE_FIELD; col++) {
+                plants.add(new Grass(false, field, field.getLocation(row, col)));
+            }
+        }
+        Random rand = new Random(Randomizer.getSeed());
+        for(Thing plant : plants) {
+            if(rand.nextBoolean()) {
+                plant.setDead();
+            }
+        }
+        for(int method = 0; method < 3; method++) {
+            List<Thing> source = (method == 0) ? plants.subList(0, DIE_OFF_SAMPLE) : plants;
+            long elapsed = 0;
+            int left = 0;
+            for(int round = 0; round <= WARMUP_ROUNDS; round++) {
+                List<Thing> things;
+                if(method == 2) {
+                    things = new ThingStore();
+                }
+                else {
+                    things = new ArrayList<>();
+                }
+                things.addAll(source);
+                long start = System.nanoTime();
+                if(method == 0) {
+                    Iterator<Thing> it = things.iterator();
+                    while(it.hasNext()) {
+                        if(!it.next().isViable()) {
+                            it.remove();
+                        }
+                    }
+                }
+                else if(method == 1) {
+                    things.removeIf(thing -> !thing.isViable());
+                }
+                else {
+                    ((ThingStore) things).removeDead();
+                }
+                elapsed = System.nanoTime() - start;
+                left = things.size();
+            }
+            String[] names = { "Iterator.remove", "removeIf", "ThingStore.removeDead" };
+            System.out.println(names[method] + " removing the dead from " + source.size()
+                               + " plants: " + String.format("%.2f", elapsed / 1e6) + " ms ("
+                               + left + " left)");
+        }
+    }
+
+    /**
+     * Compare the memory used per plant by plant objects, by column
+     * storage and by counts per square, and time steps of ten million
+     * plants stored in columns and as counts.
+     */
+    public void columnFootprint()
+    {
+        long before = usedMemory();
+        Field field = new Field(LARGE_FIELD, LARGE_FIELD);
+        List<Thing> plants = new ArrayList<>();
+        for(int row = 0; row < LARGE_FIELD; row++) {
+            for(int col = 0; col < LARGE_FIELD; col++) {
+                Location location = field.getLocation(row, col);
+                for(int plant = 0; plant < Field.MAX_PLANTS / 2; plant++) {
+                    plants.add(new Grass(false, field, location));
+                }
+            }
+        }
+        long bytes = usedMemory() - before;
+        System.out.println(plants.size() + " plant objects: "
+                           + (bytes / plants.size()) + " bytes per plant");
+        plants = null;
+        field = null;
+
+        for(ColumnSimulation.PlantStorage storage : ColumnSimulation.PlantStorage.values()) {
+            before = usedMemory();
+            ColumnSimulation columns = new ColumnSimulation(HUGE_FIELD, HUGE_FIELD, 0,
+                                                            COLUMN_PLANTS / 2, COLUMN_PLANTS / 2,
+                                                            Randomizer.getSeed(), storage);
+            bytes = usedMemory() - before;
+            System.out.println(COLUMN_PLANTS + " plants stored as " + storage + " on a "
+                               + HUGE_FIELD + "x" + HUGE_FIELD + " field: "
+                               + (bytes / (1024 * 1024)) + " MB, "
+                               + String.format("%.2f", (double) bytes / COLUMN_PLANTS)
+                               + " bytes per plant");
+            long start = System.nanoTime();
+            columns.simulate(COLUMN_STEPS);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(storage + " steps: " + (elapsed / COLUMN_STEPS / 1000000)
+                               + " ms per step, " + columns.getPopulationDetails());
+            columns = null;
+        }
+    }
+
+    /**
+     * Time steps of a field filled with grass stored as counts, with
+     * the grass spreading square by square and by way of bitboards,
+     * and report the squares swept per second.
+     */
+    public void grassBitboards()
+    {
+        int squares = HUGE_FIELD * HUGE_FIELD;
+        for(int pass = 0; pass < 2; pass++) {
+            boolean on = (pass == 1);
+            ColumnSimulation simulation =
+                new ColumnSimulation(HUGE_FIELD, HUGE_FIELD, 0, squares * (Field.MAX_PLANTS - 1),
+                                     0, Randomizer.getSeed(),
+                                     ColumnSimulation.PlantStorage.DENSITY);
+            simulation.useGrassBitboards(on);
+            // Let the grass fill the field first.
+            simulation.simulate(GRASS_STEPS);
+            long start = System.nanoTime();
+            simulation.simulate(GRASS_STEPS);
+            long elapsed = System.nanoTime() - start;
+            System.out.println((on ? "bitboard" : "square by square") + " grass on a "
+                               + HUGE_FIELD + "x" + HUGE_FIELD + " field: "
+                               + (elapsed / GRASS_STEPS / 1000000) + " ms per step, "
+                               + ((long) squares * GRASS_STEPS * 1000 / elapsed)
+                               + " million squares per second, "
+                               + simulation.getPopulationDetails());
+        }
+    }
+
+    /**
+     * Time the filling of the grass bitboards from the plant counts,
+     * a square at a time and eight squares at a time, on fields of
+     * several sizes, and report the squares filled per second.
+     */
+    public void wideKernels()
+    {
+        for(int size : KERNEL_FIELDS) {
+            PlantDensity plants = new PlantDensity(new Neighbourhood(size, size), size, size);
+            for(int cell = 0; cell < size * size; cell++) {
+                for(int n = 0; n < cell % (Field.MAX_PLANTS + 1); n++) {
+                    plants.addGrass(cell);
+                }
+            }
+            plants.useBitboards(true);
+            for(int pass = 0; pass < 2; pass++) {
+                boolean wide = (pass == 1);
+                plants.useWideKernels(wide);
+                for(int round = 0; round < WARMUP_ROUNDS; round++) {
+                    plants.fillBitboards();
+                }
+                long start = System.nanoTime();
+                for(int round = 0; round < KERNEL_ROUNDS; round++) {
+                    plants.fillBitboards();
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.println((wide ? "eight squares" : "one square") + " at a time on a "
+                                   + size + "x" + size + " field: "
+                                   + ((long) size * size * KERNEL_ROUNDS * 1000 / elapsed)
+                                   + " million squares per second");
+            }
+        }
+    }
+
+    /**
+     * Fill every square of a field with as many plants as it can hold,
+     * half grass and half trees, so that no plant has room to spread
+     * and every tree must look for grass to replace. Run steps of it
+     * and check that every step ends, and in time proportional to the
+     * number of plants.
+     */
+    public void saturatedSpread()
+    {
+        Field field = new Field(SATURATED_FIELD, SATURATED_FIELD);
+        ThingStore plants = new ThingStore();
+        for(int row = 0; row < SATURATED_FIELD; row++) {
+            for(int col = 0; col < SATURATED_FIELD; col++) {
+                Location location = field.getLocation(row, col);
+                for(int plant = 0; plant < Field.MAX_PLANTS; plant++) {
+                    if(plant % 2 == 0) {
+                        plants.add(new Grass(false, field, location));
+                    }
+                    else {
+                        plants.add(new Tree(false, field, location));
+                    }
+                }
+            }
+        }
+        long limit = plants.size() * NANOS_PER_PLANT_LIMIT;
+        long longest = 0;
+        for(int step = 1; step <= SATURATED_STEPS; step++) {
+            long start = System.nanoTime();
+            field.setStep(step);
+            List<Thing> births = plants.getBirths();
+            for(int i = 0; i < plants.size(); i++) {
+                Thing plant = plants.get(i);
+                if(plant.isViable()) {
+                    plant.act(births);
+                }
+            }
+            plants.removeDead();
+            plants.appendBirths();
+            longest = Math.max(longest, System.nanoTime() - start);
+        }
+        System.out.println("full " + SATURATED_FIELD + "x" + SATURATED_FIELD + " field, "
+                           + SATURATED_STEPS + " steps: longest step " + (longest / 1000000)
+                           + " ms, limit " + (limit / 1000000) + " ms: "
+                           + (longest <= limit ? "within the limit" : "OVER THE LIMIT")
+                           + " (" + field.getStats().getPopulationDetails(field) + ")");
+    }
+
+    /**
+     * Compare, for several radii, the cost of a deer sensing the food
+     * within the radius of each of its neighbours, by adding up the
+     * plants in each box and by asking a field's food index; and the
+     * cost of keeping the index up to date as plants come and go.
+     */
+    public void foodPerception()
+    {
+        Field field = new Field(LARGE_FIELD, LARGE_FIELD);
+        Random rand = new Random(Randomizer.getSeed());
+        List<Plant> plants = new ArrayList<>();
+        for(int row = 0; row < LARGE_FIELD; row++) {
+            for(int col = 0; col < LARGE_FIELD; col++) {
+                Location location = field.getLocation(row, col);
+                for(int plant = rand.nextInt(Field.MAX_PLANTS / 2); plant > 0; plant--) {
+                    plants.add(new Grass(false, field, location));
+                }
+            }
+        }
+        long start = System.nanoTime();
+        changePlants(field, plants, PERCEPTION_SAMPLE, rand);
+        System.out.println("without a food index: " + ((System.nanoTime() - start) / PERCEPTION_SAMPLE / 2)
+                           + " ns per plant change");
+        int[] adjacent = new int[Field.MAX_NEIGHBOURS];
+        for(int radius : PERCEPTION_RADII) {
+            field.trackFood(radius);
+            FoodIndex food = field.getFoodIndex();
+            long sum = 0;
+            long scanned = 0;
+            long indexed = 0;
+            for(int pass = 0; pass < 2; pass++) {
+                boolean useIndex = (pass == 1);
+                start = System.nanoTime();
+                for(int deer = 0; deer < PERCEPTION_SAMPLE; deer++) {
+                    int index = rand.nextInt(LARGE_FIELD * LARGE_FIELD);
+                    int count = field.neighbours(index, adjacent);
+                    for(int i = 0; i < count; i++) {
+                        sum += useIndex ? food.foodWithin(adjacent[i])
+                                        : boxSum(field, adjacent[i], radius);
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                if(useIndex) {
+                    indexed = elapsed;
+                }
+                else {
+                    scanned = elapsed;
+                }
+            }
+            start = System.nanoTime();
+            changePlants(field, plants, PERCEPTION_SAMPLE, rand);
+            long updates = System.nanoTime() - start;
+            System.out.println("radius " + radius + ": sensing food by adding up boxes "
+                               + (scanned / PERCEPTION_SAMPLE) + " ns per deer, by the index "
+                               + (indexed / PERCEPTION_SAMPLE) + " ns per deer; keeping the index "
+                               + (updates / PERCEPTION_SAMPLE / 2) + " ns per plant change ("
+                               + sum + ")");
+        }
+        field.trackFood(0);
+    }
+
+    /**
+     * Compare ways of counting the grass in rectangles of a field:
+     * scanning the squares, a summed-area table rebuilt after every
+     * step with changes, and a Fenwick table updated with each change.
+     * Each step takes some plants out of the field and puts them back,
+     * then counts the grass in REGION_QUERIES rectangles; the time per
+     * step is reported for several rates of change.
+     */
+    public void regionQueries()
+    {
+        Field field = new Field(LARGE_FIELD, LARGE_FIELD);
+        Random rand = new Random(Randomizer.getSeed());
+        List<Plant> plants = new ArrayList<>();
+        for(int row = 0; row < LARGE_FIELD; row++) {
+            for(int col = 0; col < LARGE_FIELD; col++) {
+                Location location = field.getLocation(row, col);
+                for(int plant = rand.nextInt(Field.MAX_PLANTS / 2); plant > 0; plant--) {
+                    plants.add(new Grass(false, field, location));
+                }
+            }
+        }
+        List<RegionStats.Method> methods = new ArrayList<>();
+        methods.add(null);
+        Collections.addAll(methods, RegionStats.Method.values());
+        for(int churn : CHURN_RATES) {
+            for(RegionStats.Method method : methods) {
+                field.trackRegions(method);
+                RegionStats regions = field.getRegionStats();
+                long sum = 0;
+                long start = 0;
+                for(int step = -WARMUP_ROUNDS; step < REGION_STEPS; step++) {
+                    if(step == 0) {
+                        start = System.nanoTime();
+                    }
+                    changePlants(field, plants, churn, rand);
+                    for(int query = 0; query < REGION_QUERIES; query++) {
+                        int row = rand.nextInt(LARGE_FIELD - REGION_SIZE);
+                        int col = rand.nextInt(LARGE_FIELD - REGION_SIZE);
+                        if(regions != null) {
+                            sum += regions.count(Species.GRASS, row, col, REGION_SIZE, REGION_SIZE);
+                        }
+                        else {
+                            sum += scanGrass(field, row, col);
+                        }
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.println((method == null ? "scanning" : method.toString()) + ", "
+                                   + churn + " plants changed per step: "
+                                   + (elapsed / REGION_STEPS / 1000000) + " ms per step ("
+                                   + sum + ")");
+            }
+        }
+        field.trackRegions(null);
+    }
+
+    /**
+     * Measure what keeping region counts adds to a step of the parallel
+     * engine, with one thread per processor: the threads' changes to a
+     * Fenwick table, or the rebuild of a summed-area table once the
+     * step is over. One count is asked for after each step, and the
+     * counts of the whole field are checked against its statistics.
+     */
+    public void regionTracking()
+    {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int squares = TRACKED_FIELD * TRACKED_FIELD;
+        List<RegionStats.Method> methods = new ArrayList<>();
+        methods.add(null);
+        Collections.addAll(methods, RegionStats.Method.values());
+        for(RegionStats.Method method : methods) {
+            Randomizer.reset();
+            Simulator simulator = new Simulator(TRACKED_FIELD, TRACKED_FIELD,
+                                                squares / 20, squares / 5, squares / 40, false);
+            simulator.useParallelEngine(processors, ACTIVE_TILE);
+            Field field = simulator.getField();
+            field.trackRegions(method);
+            RegionStats regions = field.getRegionStats();
+            long sum = 0;
+            long start = 0;
+            for(int step = -WARMUP_ROUNDS; step < TRACKED_STEPS; step++) {
+                if(step == 0) {
+                    start = System.nanoTime();
+                }
+                simulator.simulateOneStep();
+                if(regions != null) {
+                    sum += regions.count(Species.GRASS, 0, 0, REGION_SIZE, REGION_SIZE);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            boolean same = true;
+            if(regions != null) {
+                int[] counts = field.getStats().getCounts();
+                for(int code = Species.DEER; code < Species.count(); code++) {
+                    same &= regions.count(code, 0, 0, TRACKED_FIELD, TRACKED_FIELD) == counts[code];
+                }
+            }
+            simulator.useSequentialEngine();
+            System.out.println((method == null ? "no region counts" : method.toString())
+                               + " on " + processors + " threads: "
+                               + (elapsed / TRACKED_STEPS / 1000000) + " ms per step ("
+                               + sum + (same ? ", counts agree)" : ", counts DIFFER)"));
+        }
+    }
+
+    /**
+     * Compare the cost of a step in which NAVIGATING_DEER deer, far
+     * from food on a field with small patches of grass, each choose a
+     * move towards the nearest grass: by a breadth-first search of its
+     * own from each deer, and by a flow field found once for all of
+     * them.
+     */
+    public void deerNavigation()
+    {
+        Field field = new Field(LARGE_FIELD, LARGE_FIELD);
+        for(int top = 0; top < LARGE_FIELD; top += PATCH_SPACING) {
+            for(int left = 0; left < LARGE_FIELD; left += PATCH_SPACING) {
+                for(int row = top; row < top + PATCH_SIZE; row++) {
+                    for(int col = left; col < left + PATCH_SIZE; col++) {
+                        new Grass(false, field, field.getLocation(row, col));
+                    }
+                }
+            }
+        }
+        Random rand = new Random(Randomizer.getSeed());
+        int[] deer = new int[NAVIGATING_DEER];
+        for(int i = 0; i < deer.length; i++) {
+            deer[i] = rand.nextInt(LARGE_FIELD * LARGE_FIELD);
+        }
+        Neighbourhood neighbourhood = new Neighbourhood(LARGE_FIELD, LARGE_FIELD);
+        int[] seen = new int[LARGE_FIELD * LARGE_FIELD];
+        int[] queue = new int[LARGE_FIELD * LARGE_FIELD];
+        int[] firstMove = new int[LARGE_FIELD * LARGE_FIELD];
+        long searched = 0;
+        long sum = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < deer.length; i++) {
+            // Each search marks the squares it sees with its own number.
+            int mark = i + 1;
+            int tail = 0;
+            seen[deer[i]] = mark;
+            queue[tail++] = deer[i];
+            firstMove[deer[i]] = deer[i];
+            int move = deer[i];
+            for(int head = 0; head < tail; head++) {
+                int index = queue[head];
+                if(field.getPlantCount(index) > 0) {
+                    move = firstMove[index];
+                    searched += head;
+                    break;
+                }
+                int directions = neighbourhood.directionsAt(index);
+                while(directions != 0) {
+                    int other = neighbourhood.neighbour(index, Integer.numberOfTrailingZeros(directions));
+                    if(seen[other] != mark) {
+                        seen[other] = mark;
+                        queue[tail++] = other;
+                        firstMove[other] = (index == deer[i]) ? other : firstMove[index];
+                    }
+                    directions &= directions - 1;
+                }
+            }
+            sum += move;
+        }
+        long searching = System.nanoTime() - start;
+        System.out.println(NAVIGATING_DEER + " deer searching on their own: "
+                           + (searching / 1000000) + " ms per step, "
+                           + (searched / NAVIGATING_DEER) + " squares searched per deer ("
+                           + sum + ")");
+
+        field.trackFlow(true);
+        FlowField flow = field.getFlowField();
+        int[] adjacent = new int[Field.MAX_NEIGHBOURS];
+        sum = 0;
+        start = System.nanoTime();
+        field.updateFlowField();
+        long rebuilt = System.nanoTime() - start;
+        for(int i = 0; i < deer.length; i++) {
+            int count = field.neighbours(deer[i], adjacent);
+            int move = deer[i];
+            for(int n = 0; n < count; n++) {
+                if(flow.distanceAt(adjacent[n]) < flow.distanceAt(move)) {
+                    move = adjacent[n];
+                }
+            }
+            sum += move;
+        }
+        long following = System.nanoTime() - start;
+        System.out.println(NAVIGATING_DEER + " deer following a flow field: "
+                           + (following / 1000000) + " ms per step, of which "
+                           + (rebuilt / 1000000) + " ms finding the field ("
+                           + sum + ")");
+        field.trackFlow(false);
+    }
+
+    /**
+     * Count the grass in a REGION_SIZE square of a field by looking at
+     * each of its squares.
+     * @param field The field.
+     * @param top The top row of the square.
+     * @param left The left column of the square.
+     * @return The number of grass plants.
+     */
+    private int scanGrass(Field field, int top, int left)
+    {
+        int sum = 0;
+        for(int row = top; row < top + REGION_SIZE; row++) {
+            for(int col = left; col < left + REGION_SIZE; col++) {
+                int index = row * field.getWidth() + col;
+                for(int n = 0; n < field.getPlantCount(index); n++) {
+                    if(field.getPlant(index, n) instanceof Grass) {
+                        sum++;
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Take plants, chosen at random, out of the field and put them back.
+     * @param field The field.
+     * @param plants The plants in the field.
+     * @param changes The number of plants to take out.
+     * @param rand The generator choosing the plants.
+     */
+    private void changePlants(Field field, List<Plant> plants, int changes, Random rand)
+    {
+        for(int n = 0; n < changes; n++) {
+            Plant plant = plants.get(rand.nextInt(plants.size()));
+            Location location = plant.getLocation();
+            field.removePlant(plant, location);
+            field.addPlant(plant, location);
+        }
+    }
+
+    /**
+     * Add up the plants in the box of squares within a radius of a
+     * square.
+     * @param field The field.
+     * @param index The index of the square.
+     * @param radius The number of squares on each side of it.
+     * @return The number of plants.
+     */
+    private int boxSum(Field field, int index, int radius)
+    {
+        int row = index / LARGE_FIELD;
+        int col = index % LARGE_FIELD;
+        int sum = 0;
+        for(int r = Math.max(0, row - radius); r <= Math.min(LARGE_FIELD - 1, row + radius); r++) {
+            for(int c = Math.max(0, col - radius); c <= Math.min(LARGE_FIELD - 1, col + radius); c++) {
+                sum += field.getPlantCount(r, c);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Run steps of a field of plants, as the simulator's sequential
+     * engine does, first taking a grass from random squares.
+     * @param wheel The wheel the plants are scheduled on.
+     * @param steps The number of steps.
+     * @param disturbed The number of squares to take a grass from.
+     * @param rand The generator choosing the squares.
+     * @return The number of acts, and the total active fraction of
+     *         the steps in millionths.
+     */
+    private long[] runQuiet(Field field, TimingWheel wheel, int steps, int disturbed, Random rand)
+    {
+        ActiveTiles tiles = field.getActiveTiles();
+        List<Thing> newThings = new ArrayList<>();
+        long[] work = new long[2];
+        for(int n = 0; n < steps; n++) {
+            int step = field.getStep() + 1;
+            field.setStep(step);
+            for(int d = 0; d < disturbed; d++) {
+                int index = rand.nextInt(HUGE_FIELD * HUGE_FIELD);
+                if(field.getPlantCount(index) > 0) {
+                    field.getPlant(index, 0).setDead();
+                }
+            }
+            List<Thing> due = wheel.takeDue(step);
+            for(Thing thing : due) {
+                if(thing.isViable()) {
+                    int index = field.indexOf(thing.getLocation());
+                    if(tiles != null && tiles.isQuiet(index, step)) {
+                        tiles.sleep(thing, index);
+                    }
+                    else {
+                        thing.act(newThings);
+                        work[0]++;
+                        if(thing.isViable()) {
+                            wheel.schedule(thing, thing.nextWake(step));
+                        }
+                    }
+                }
+            }
+            wheel.release(due);
+            if(tiles != null) {
+                tiles.takeWoken(newThings);
+                work[1] += (long) (tiles.getActiveFraction(step) * 1e6);
+            }
+            else {
+                work[1] += 1000000;
+            }
+            for(Thing thing : newThings) {
+                wheel.schedule(thing, thing.nextWake(step));
+            }
+            newThings.clear();
+        }
+        return work;
+    }
+
+    /**
+     * Draw random numbers on several threads at once.
+     * @param threads The number of threads.
+     * @param shared The generator for all the threads to share, or
+     *        null for each to use Randomizer.getRandom().
+     * @return The time taken, in nanoseconds.
+     */
+    private long drawRandom(int threads, Random shared)
+    {
+        int draws = RANDOM_DRAWS / threads;
+        Thread[] workers = new Thread[threads];
+        long[] sums = new long[threads];
+        for(int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                RandomGenerator rand = (shared != null) ? shared : Randomizer.getRandom();
+                long sum = 0;
+                for(int i = 0; i < draws; i++) {
+                    sum += rand.nextInt(Field.MAX_NEIGHBOURS);
+                }
+                sums[worker] = sum;
+            });
+        }
+        long start = System.nanoTime();
+        for(Thread worker : workers) {
+            worker.start();
+        }
+        try {
+            for(Thread worker : workers) {
+                worker.join();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Choose a random order of a square's neighbours many times.
+     * @return A checksum of the orders chosen.
+     */
+    private long orderNeighbours(Field field, Location location, Random rand,
+                                 int calls, boolean useShuffle)
+    {
+        long sum = 0;
+        int[] adjacent = new int[Field.MAX_NEIGHBOURS];
+        for(int call = 0; call < calls; call++) {
+            if(useShuffle) {
+                List<Location> locations = new ArrayList<>(Field.MAX_NEIGHBOURS);
+                for(int row = 0; row < 3; row++) {
+                    for(int col = 0; col < 3; col++) {
+                        if(row != 1 || col != 1) {
+                            locations.add(field.getLocation(row, col));
+                        }
+                    }
+                }
+                Collections.shuffle(locations, rand);
+                sum += locations.get(0).getCol();
+            }
+            else {
+                field.neighbours(location, adjacent);
+                sum += adjacent[0];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Visit the neighbours of every square of the field once.
+     * @param useList true to use adjacentLocations, false to use
+     *        the neighbours buffer.
+     * @return The total number of plants seen, so the work is not
+     *         optimized away.
+     */
+    private long neighbourSweep(Field field, boolean useList)
+    {
+        long plants = 0;
+        int[] adjacent = new int[Field.MAX_NEIGHBOURS];
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col = 0; col < field.getWidth(); col++) {
+                Location location = field.getLocation(row, col);
+                if(useList) {
+                    for(Location where : field.adjacentLocations(location)) {
+                        plants += field.getPlantCount(field.indexOf(where));
+                    }
+                }
+                else {
+                    int count = field.neighbours(location, adjacent);
+                    for(int i = 0; i < count; i++) {
+                        plants += field.getPlantCount(adjacent[i]);
+                    }
+                }
+            }
+        }
+        return plants;
+    }
+
+    /**
+     * @return The heap in use after a garbage collection, in bytes.
+     */
+    private static long usedMemory()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return The number of bytes allocated so far by the current thread.
+     */
+    private static long allocatedBytes()
+    {
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
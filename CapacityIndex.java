@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/**
+ * For each square of a field, which of its neighbours have room for
+ * another plant, and which have grass, kept up to date as plants come
+ * and go. A spreading plant picks its target from these with a single
+ * random draw, and finds out at once when no neighbour will do, where
+ * looking through the neighbours would take a draw and eight checks
+ * however crowded the field.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class CapacityIndex
+{
+    // The neighbours of each square.
+    private Neighbourhood neighbourhood;
+    // For each square, a bit for each direction whose neighbour has
+    // room for another plant.
+    private byte[] room;
+    // For each square, a bit for each direction whose neighbour has
+    // grass.
+    private byte[] grass;
+
+    /**
+     * Create an index for an empty field, in which every square has
+     * room and none has grass.
+     * @param neighbourhood The neighbours of the field's squares.
+     * @param squares The number of squares in the field.
+     */
+    public CapacityIndex(Neighbourhood neighbourhood, int squares)
+    {
+        this.neighbourhood = neighbourhood;
+        room = new byte[squares];
+        grass = new byte[squares];
+        clear();
+    }
+
+    /**
+     * Record that a square has become full, or has room again.
+     * @param index The index of the square.
+     * @param full true if it is now full.
+     */
+    public void setFull(int index, boolean full)
+    {
+        update(room, index, !full);
+    }
+
+    /**
+     * Record that a square has gained its first grass, or lost its
+     * last.
+     * @param index The index of the square.
+     * @param grassy true if it now has grass.
+     */
+    public void setGrassy(int index, boolean grassy)
+    {
+        update(grass, index, grassy);
+    }
+
+    /**
+     * Choose, at random, a neighbour of a square with room for another
+     * plant.
+     * @param index The index of the square.
+     * @return The index of the neighbour, or -1 if all are full.
+     */
+    public int pickRoom(int index)
+    {
+        return neighbourhood.pick(index, room[index] & 0xFF);
+    }
+
+    /**
+     * Choose, at random, a neighbour of a square with grass.
+     * @param index The index of the square.
+     * @return The index of the neighbour, or -1 if none has grass.
+     */
+    public int pickGrass(int index)
+    {
+        return neighbourhood.pick(index, grass[index] & 0xFF);
+    }
+
+    /**
+     * Return to an empty field, in which every square has room and
+     * none has grass.
+     */
+    public void clear()
+    {
+        for(int index = 0; index < room.length; index++) {
+            room[index] = (byte) neighbourhood.directionsAt(index);
+        }
+        Arrays.fill(grass, (byte) 0);
+    }
+
+    /**
+     * Set or clear the bit for a square in each of its neighbours.
+     * @param bits The bits of the neighbours of every square.
+     * @param index The index of the square.
+     * @param set true to set the bits.
+     */
+    private void update(byte[] bits, int index, boolean set)
+    {
+        int directions = neighbourhood.directionsAt(index);
+        while(directions != 0) {
+            int dir = Integer.numberOfTrailingZeros(directions);
+            int other = neighbourhood.neighbour(index, dir);
+            int bit = 1 << Neighbourhood.opposite(dir);
+            if(set) {
+                bits[other] |= bit;
+            }
+            else {
+                bits[other] &= ~bit;
+            }
+            directions &= directions - 1;
+        }
+    }
+}
@@ -0,0 +1,548 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * A simulation of deer, grass, trees and fire whose organisms are not
+ * objects but rows in a column store for each species. Each step runs
+ * one tight loop per species over its columns: fire, then deer, then
+ * trees, then grass. A plant costs twelve bytes, and the field a few
+ * more per square, so ten million plants fit in well under 200 MB,
+ * where as objects they would need several times that.
+ *
+ * The rules are those of the Deer, Grass, Tree and Fire classes, with
+ * deer moving as they plan to on the intent engine: they only move to
+ * squares without a deer. A deer eats grass in preference to a tree.
+ * Runs depend only on the seed, but differ from runs of a Simulator.
+ * There is no view; the counts of each species can be read after
+ * each step.
+ *
+ * The plants may instead be kept as counts of each species in each
+ * square, in a PlantDensity, which needs a hundredth of the memory.
+ * Plants then spread, are eaten and burn by count, with the same
+ * chances.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class ColumnSimulation
+{
+    // The number of turns between fires starting.
+    private static final int FIRE_STARTS = 10;
+
+    /**
+     * How the plants are stored: a row per plant in a column store,
+     * or a count of each species in each square.
+     */
+    public enum PlantStorage
+    {
+        COLUMNS, DENSITY
+    }
+
+    // The depth and width of the field.
+    private int depth, width;
+    // The neighbours of each square, in random orders.
+    private Neighbourhood neighbourhood;
+    // The members of each species; the plants are null when they
+    // are stored as counts.
+    private SpeciesColumns deer, grass, trees;
+    // The number of plants in each square, when they are stored in
+    // columns.
+    private byte[] plantCounts;
+    // The plants of each species in each square, or null when they
+    // are stored in columns.
+    private PlantDensity density;
+    // The fire in each square.
+    private FireLayer fire;
+    // A buffer for neighbour lookups.
+    private int[] adjacent;
+    // The current step of the simulation.
+    private int step;
+    // The seed the simulation's random numbers are derived from.
+    private long seed;
+
+    /**
+     * Create a simulation of a field of the given size, populated at
+     * random with the given numbers of each species.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param deerCount The number of deer; at most one per square.
+     * @param grassCount The number of grass plants.
+     * @param treeCount The number of trees; at most MAX_PLANTS plants
+     *        in all per square.
+     * @param seed The seed of the simulation.
+     */
+    public ColumnSimulation(int depth, int width, int deerCount, int grassCount,
+                            int treeCount, long seed)
+    {
+        this(depth, width, deerCount, grassCount, treeCount, seed, PlantStorage.COLUMNS);
+    }
+
+    /**
+     * Create a simulation of a field of the given size, populated at
+     * random with the given numbers of each species, with its plants
+     * stored in the given way.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param deerCount The number of deer; at most one per square.
+     * @param grassCount The number of grass plants.
+     * @param treeCount The number of trees; at most MAX_PLANTS plants
+     *        in all per square.
+     * @param seed The seed of the simulation.
+     * @param plants How the plants are to be stored.
+     */
+    public ColumnSimulation(int depth, int width, int deerCount, int grassCount,
+                            int treeCount, long seed, PlantStorage plants)
+    {
+        if(depth <= 0 || width <= 0) {
+            System.out.println("The dimensions must be greater than zero.");
+            System.out.println("Using default values.");
+            depth = 12;
+            width = 12;
+        }
+        int squares = depth * width;
+        if(deerCount < 0 || grassCount < 0 || treeCount < 0 || deerCount > squares
+           || (long) grassCount + treeCount > (long) squares * Field.MAX_PLANTS) {
+            System.out.println("The field cannot hold that many deer or plants.");
+            System.out.println("Reducing the counts to fit the field.");
+            deerCount = Math.max(0, Math.min(deerCount, squares));
+            grassCount = Math.max(0, Math.min(grassCount, squares * Field.MAX_PLANTS / 2));
+            treeCount = Math.max(0, Math.min(treeCount, squares * Field.MAX_PLANTS / 2));
+        }
+        this.depth = depth;
+        this.width = width;
+        this.seed = seed;
+        neighbourhood = new Neighbourhood(depth, width);
+        deer = new SpeciesColumns(squares, true);
+        deer.ensureCapacity(deerCount);
+        if(plants == PlantStorage.DENSITY) {
+            density = new PlantDensity(neighbourhood, depth, width);
+        }
+        else {
+            grass = new SpeciesColumns(squares, false);
+            trees = new SpeciesColumns(squares, false);
+            grass.ensureCapacity(grassCount);
+            trees.ensureCapacity(treeCount);
+            plantCounts = new byte[squares];
+        }
+        fire = new FireLayer(squares);
+        adjacent = new int[Field.MAX_NEIGHBOURS];
+        populate(deerCount, grassCount, treeCount);
+    }
+
+    /**
+     * Run the simulation for the given number of steps.
+     * @param numSteps The number of steps to run for.
+     */
+    public void simulate(int numSteps)
+    {
+        for(int n = 0; n < numSteps; n++) {
+            simulateOneStep();
+        }
+    }
+
+    /**
+     * Run the simulation from its current state for a single step.
+     */
+    public void simulateOneStep()
+    {
+        step++;
+        Randomizer.bind(Randomizer.getRandom(seed, step, -1));
+        try {
+            RandomGenerator rand = Randomizer.getRandom();
+            burn(rand);
+            if(step % FIRE_STARTS == 0) {
+                startFire(rand.nextInt(depth * width));
+            }
+            moveDeer();
+            if(density != null) {
+                density.spread(step);
+            }
+            else {
+                spreadTrees();
+                spreadGrass();
+            }
+        }
+        finally {
+            Randomizer.unbind();
+        }
+    }
+
+    /**
+     * Choose whether grass spreads by way of bitboards, finding the
+     * squares it can spread from 64 at a time. Only plants stored as
+     * counts can use them.
+     * @param on true to use bitboards.
+     */
+    public void useGrassBitboards(boolean on)
+    {
+        if(density == null) {
+            System.out.println("Only plants stored as counts can use bitboards.");
+            System.out.println("Leaving the plants as they are.");
+            return;
+        }
+        density.useBitboards(on);
+    }
+
+    /**
+     * Choose whether the grass bitboards are filled eight squares at a
+     * time, or a square at a time. The runs are the same either way.
+     * @param on true to fill them eight squares at a time.
+     */
+    public void useWideKernels(boolean on)
+    {
+        if(density == null) {
+            System.out.println("Only plants stored as counts can use bitboards.");
+            System.out.println("Leaving the plants as they are.");
+            return;
+        }
+        density.useWideKernels(on);
+    }
+
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @param species A species code, as in Species.
+     * @return The number of that species in the field.
+     */
+    public int getCount(int species)
+    {
+        if(species == Species.DEER) {
+            return deer.getCount();
+        }
+        else if(species == Species.GRASS) {
+            return density != null ? density.getGrassCount() : grass.getCount();
+        }
+        else if(species == Species.TREE) {
+            return density != null ? density.getTreeCount() : trees.getCount();
+        }
+        return 0;
+    }
+
+    /**
+     * @return The number of burning squares.
+     */
+    public int getFireCount()
+    {
+        return fire.getFrontSize();
+    }
+
+    /**
+     * Get details of what is in the field, with the burning squares
+     * counted as fires.
+     * @return A string describing what is in the field.
+     */
+    public String getPopulationDetails()
+    {
+        StringBuffer buffer = new StringBuffer();
+        for(int code = Species.DEER; code <= Species.TREE; code++) {
+            buffer.append(Species.nameOf(code));
+            buffer.append(": ");
+            buffer.append(getCount(code));
+            buffer.append(' ');
+        }
+        buffer.append("Fire: ");
+        buffer.append(getFireCount());
+        buffer.append(' ');
+        return buffer.toString();
+    }
+
+    /**
+     * Determine whether the simulation is still viable.
+     * @return true If there is more than one species alive, a fire
+     *         counting as one.
+     */
+    public boolean isViable()
+    {
+        int nonZero = 0;
+        for(int code = Species.DEER; code <= Species.TREE; code++) {
+            if(getCount(code) > 0) {
+                nonZero++;
+            }
+        }
+        if(getFireCount() > 0) {
+            nonZero++;
+        }
+        return nonZero > 1;
+    }
+
+    /**
+     * Sweep the fire: each plant on a burning square may die, and the
+     * unburnt squares around it with plants and no deer catch fire.
+     * @param rand The random generator.
+     */
+    private void burn(RandomGenerator rand)
+    {
+        int burning = fire.getFrontSize();
+        for(int i = 0; i < burning; i++) {
+            int cell = fire.getFront(i);
+            if(density != null) {
+                density.burn(cell, rand);
+            }
+            else {
+                burnPlants(grass, cell, Fire.deathProbability(Species.GRASS), rand);
+                burnPlants(trees, cell, Fire.deathProbability(Species.TREE), rand);
+            }
+            int count = neighbourhood.neighbours(cell, adjacent);
+            for(int n = 0; n < count; n++) {
+                startFire(adjacent[n]);
+            }
+        }
+        fire.cool(burning, cell -> plantsAt(cell) > 0);
+    }
+
+    /**
+     * Give each plant of a species in a burning square its chance of
+     * dying.
+     * @param plants The species' columns.
+     * @param cell The burning square.
+     * @param probability The chance of each dying.
+     * @param rand The random generator.
+     */
+    private void burnPlants(SpeciesColumns plants, int cell, double probability,
+                            RandomGenerator rand)
+    {
+        int row = plants.first(cell);
+        while(row >= 0) {
+            int after = plants.next(row);
+            if(rand.nextDouble() <= probability) {
+                killPlant(plants, row);
+            }
+            row = after;
+        }
+    }
+
+    /**
+     * Set a square alight, if it has plants, no deer, and is unburnt.
+     * @param cell The index of the square.
+     */
+    private void startFire(int cell)
+    {
+        if(plantsAt(cell) > 0 && deer.first(cell) < 0) {
+            fire.ignite(cell, Fire.INTENSITY);
+        }
+    }
+
+    /**
+     * Let every deer born before this step act. A deer may give birth
+     * into a free square next to it; it then moves to the square with
+     * the most plants among its own and the free ones around it, and
+     * eats there. With nothing to eat it moves to a free square, or
+     * dies if there is none. Either way it loses health, and dies of
+     * hunger when it has none.
+     */
+    private void moveDeer()
+    {
+        int rows = deer.getRows();
+        for(int row = 0; row < rows; row++) {
+            if(deer.isAlive(row) && deer.getBirth(row) < step) {
+                int age = step - 1 - deer.getBirth(row);
+                int health = deer.getHealth(row);
+                int here = deer.getCell(row);
+                int count = neighbourhood.neighbours(here, adjacent);
+                int firstFree = -1;
+                int lastFree = -1;
+                int mostFood = here;
+                int mostPlants = plantsAt(here);
+                for(int i = 0; i < count; i++) {
+                    int cell = adjacent[i];
+                    if(deer.first(cell) < 0) {
+                        if(firstFree < 0) {
+                            firstFree = cell;
+                        }
+                        lastFree = cell;
+                        int plants = plantsAt(cell);
+                        if(plants > mostPlants) {
+                            mostFood = cell;
+                            mostPlants = plants;
+                        }
+                    }
+                }
+                if(age > 0 && age % Deer.REPRODUCTION_CYCLE == 0
+                   && health == Deer.MAX_HEALTH && firstFree >= 0) {
+                    int young = deer.add(firstFree, step);
+                    deer.setHealth(young, Deer.MAX_HEALTH);
+                }
+                if(mostPlants > 0) {
+                    if(mostFood == here || deer.first(mostFood) < 0) {
+                        deer.move(row, mostFood);
+                        eat(mostFood);
+                        if(health < Deer.MAX_HEALTH) {
+                            health += Deer.GRASS_FOOD_VALUE;
+                        }
+                    }
+                    health--;
+                }
+                else {
+                    health--;
+                    if(lastFree < 0) {
+                        // Overcrowded.
+                        health = Deer.MIN_HEALTH;
+                    }
+                    else if(deer.first(lastFree) < 0) {
+                        deer.move(row, lastFree);
+                    }
+                }
+                if(health <= Deer.MIN_HEALTH) {
+                    deer.remove(row);
+                }
+                else {
+                    deer.setHealth(row, health);
+                }
+            }
+        }
+    }
+
+    /**
+     * Eat the newest grass in a square or, if there is none, the
+     * newest tree. When plants are stored as counts, any grass or tree
+     * will do.
+     * @param cell The index of the square.
+     */
+    private void eat(int cell)
+    {
+        if(density != null) {
+            density.eat(cell);
+            return;
+        }
+        int row = grass.first(cell);
+        if(row >= 0) {
+            killPlant(grass, row);
+        }
+        else {
+            killPlant(trees, trees.first(cell));
+        }
+    }
+
+    /**
+     * Let every tree whose age is a multiple of its spread interval
+     * spread into the first neighbouring square with room or, if all
+     * are full, replace the newest grass in the first that has some.
+     */
+    private void spreadTrees()
+    {
+        int rows = trees.getRows();
+        for(int row = 0; row < rows; row++) {
+            int age = step - trees.getBirth(row);
+            if(age > 0 && age % Tree.NEW_TREE == 0 && trees.isAlive(row)) {
+                int count = neighbourhood.neighbours(trees.getCell(row), adjacent);
+                int target = -1;
+                for(int i = 0; i < count && target < 0; i++) {
+                    if(plantCounts[adjacent[i]] < Field.MAX_PLANTS) {
+                        target = adjacent[i];
+                    }
+                }
+                for(int i = 0; i < count && target < 0; i++) {
+                    int newest = grass.first(adjacent[i]);
+                    if(newest >= 0) {
+                        target = adjacent[i];
+                        killPlant(grass, newest);
+                    }
+                }
+                if(target >= 0) {
+                    addPlant(trees, target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Let every grass whose age is a multiple of its spread interval
+     * spread into the first neighbouring square with room.
+     */
+    private void spreadGrass()
+    {
+        int rows = grass.getRows();
+        for(int row = 0; row < rows; row++) {
+            int age = step - grass.getBirth(row);
+            if(age > 0 && age % Grass.NEW_GRASS == 0 && grass.isAlive(row)) {
+                int count = neighbourhood.neighbours(grass.getCell(row), adjacent);
+                for(int i = 0; i < count; i++) {
+                    if(plantCounts[adjacent[i]] < Field.MAX_PLANTS) {
+                        addPlant(grass, adjacent[i]);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param cell The index of a square.
+     * @return The number of plants there.
+     */
+    private int plantsAt(int cell)
+    {
+        return density != null ? density.getPlants(cell) : plantCounts[cell];
+    }
+
+    /**
+     * Add a plant, born this step, to a square.
+     * @param plants The columns of its species.
+     * @param cell The index of the square.
+     */
+    private void addPlant(SpeciesColumns plants, int cell)
+    {
+        plants.add(cell, step);
+        plantCounts[cell]++;
+    }
+
+    /**
+     * Remove a plant from its square.
+     * @param plants The columns of its species.
+     * @param row Its row.
+     */
+    private void killPlant(SpeciesColumns plants, int row)
+    {
+        plantCounts[plants.getCell(row)]--;
+        plants.remove(row);
+    }
+
+    /**
+     * Randomly populate the field: deer on squares without a deer,
+     * and plants on squares with room.
+     */
+    private void populate(int deerCount, int grassCount, int treeCount)
+    {
+        Randomizer.bind(Randomizer.getRandom(seed, 0, -1));
+        try {
+            RandomGenerator rand = Randomizer.getRandom();
+            int squares = depth * width;
+            while(deer.getCount() < deerCount) {
+                int cell = rand.nextInt(squares);
+                if(deer.first(cell) < 0) {
+                    deer.setHealth(deer.add(cell, 0), Deer.MAX_HEALTH);
+                }
+            }
+            while(getCount(Species.TREE) < treeCount) {
+                int cell = rand.nextInt(squares);
+                if(plantsAt(cell) < Field.MAX_PLANTS) {
+                    if(density != null) {
+                        density.addTree(cell);
+                    }
+                    else {
+                        addPlant(trees, cell);
+                    }
+                }
+            }
+            while(getCount(Species.GRASS) < grassCount) {
+                int cell = rand.nextInt(squares);
+                if(plantsAt(cell) < Field.MAX_PLANTS) {
+                    if(density != null) {
+                        density.addGrass(cell);
+                    }
+                    else {
+                        addPlant(grass, cell);
+                    }
+                }
+            }
+        }
+        finally {
+            Randomizer.unbind();
+        }
+    }
+}
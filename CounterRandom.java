@@ -0,0 +1,60 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * A random generator whose numbers are a pure function of where they
+ * are drawn: the seed of the simulation, the step, the square, the
+ * purpose they are drawn for, and how many were drawn before them for
+ * the same purpose. Nothing is carried over from one key to the next,
+ * so any draw can be worked out again on its own with Randomizer.draw.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class CounterRandom implements RandomGenerator
+{
+    // The key the numbers are drawn for, made by Randomizer.counterKey.
+    private long key;
+    // The number of numbers drawn so far for this key.
+    private long counter;
+
+    /**
+     * Create a generator for the given key.
+     * @param seed The seed of the simulation.
+     * @param step The step of the simulation.
+     * @param cell The index of the square.
+     * @param purpose What the numbers are drawn for.
+     */
+    public CounterRandom(long seed, int step, int cell, int purpose)
+    {
+        setKey(seed, step, cell, purpose);
+    }
+
+    /**
+     * Move to a new key, starting its draws from the first.
+     * @param seed The seed of the simulation.
+     * @param step The step of the simulation.
+     * @param cell The index of the square.
+     * @param purpose What the numbers are drawn for.
+     */
+    public void setKey(long seed, int step, int cell, int purpose)
+    {
+        key = Randomizer.counterKey(seed, step, cell, purpose);
+        counter = 0;
+    }
+
+    /**
+     * @return The number of numbers drawn so far for this key.
+     */
+    public long getCounter()
+    {
+        return counter;
+    }
+
+    /**
+     * @return The next number for this key.
+     */
+    public long nextLong()
+    {
+        return Randomizer.draw(key, counter++);
+    }
+}
@@ -1,7 +1,5 @@
 import java.util.List;
-import java.util.Iterator;
-import java.util.Random;
-import java.util.ArrayList;
+import java.util.random.RandomGenerator;
 
 /**
  * A simple model of a deer.
@@ -17,16 +15,14 @@ public class Deer extends Animal
     // Characteristics shared by all deer (class variables).
     
     // Number of turns between reproduction cycles. 
-    private static final int REPRODUCTION_CYCLE = 4;
+    static final int REPRODUCTION_CYCLE = 4;
     // The minimum health required for a deer to live.
-    private static final int MIN_HEALTH = 0;
+    static final int MIN_HEALTH = 0;
     // The maximum health a deer can have.
-    private static final int MAX_HEALTH = 8;
+    static final int MAX_HEALTH = 8;
     // The food value of a single grass. In effect, this is the
     // number of health points a deer gains from eating a square of grass.
-    private static final int GRASS_FOOD_VALUE = 1;
-    // A shared random number generator.
-    private static final Random rand = Randomizer.getRandom();
+    static final int GRASS_FOOD_VALUE = 1;
     
     // Individual characteristics (instance fields).
     // The deer's age.
@@ -45,6 +41,7 @@ public class Deer extends Animal
     {
         super(field, location);
         if(randomAge) {
+            RandomGenerator rand = Randomizer.getRandom();
             age = rand.nextInt();
             healthLevel = rand.nextInt(MAX_HEALTH);
         }
@@ -70,9 +67,13 @@ public class Deer extends Animal
             Location newLocation = findFood();
             incrementAge();
             lowerHealth();
+            if(!isViable()) {
+                // Starved.
+                return;
+            }
             if(newLocation == null) { 
                 // No food found - try to move to a free location.
-                newLocation = getField().freeAdjacentLocation(getLocation());
+                newLocation = findFreeLocation();
             }
             // See if it was possible to move.
             if(newLocation != null) {
@@ -112,28 +113,206 @@ public class Deer extends Animal
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
+        FoodIndex food = field.getFoodIndex();
         Location mostFood = getLocation();
-        ArrayList<Plant> currantPlantList = mostFood.getPlants();
-        while(it.hasNext()) {
-            Location where = it.next();
-            ArrayList<Plant> plants = where.getPlants();
-            if(plants.size() > currantPlantList.size()) {
-                mostFood = where;
+        if(food != null) {
+            mostFood = field.getLocation(food.bestAdjacent(field.indexOf(mostFood)));
+        }
+        else {
+            int[] adjacent = neighbourBuffer();
+            int count = field.neighbours(getLocation(), adjacent);
+            int mostPlants = field.getPlantCount(field.indexOf(mostFood));
+            for(int i = 0; i < count; i++) {
+                int plants = field.getPlantCount(adjacent[i]);
+                if(plants > mostPlants) {
+                    mostFood = field.getLocation(adjacent[i]);
+                    mostPlants = plants;
+                }
+            }
+        }
+        if(eat(mostFood)) {
+            return mostFood;
+        }
+        return null;
+    }
+    
+    /**
+     * Find a free adjacent location to move to. If the field keeps a
+     * flow field, head for the free location nearest to food; else if
+     * it keeps track of the food around each square, head for the free
+     * location with the most food within its radius.
+     * @return The location, or null if there is none.
+     */
+    private Location findFreeLocation()
+    {
+        Field field = getField();
+        if(field.getFlowField() != null) {
+            return findWayToFood();
+        }
+        FoodIndex food = field.getFoodIndex();
+        if(food == null) {
+            return field.freeAdjacentLocation(getLocation());
+        }
+        int[] adjacent = neighbourBuffer();
+        int count = field.neighbours(getLocation(), adjacent);
+        int best = -1;
+        int bestFood = -1;
+        for(int i = 0; i < count; i++) {
+            if(field.getSpeciesAt(adjacent[i]) != Species.DEER
+               && food.foodWithin(adjacent[i]) > bestFood) {
+                best = adjacent[i];
+                bestFood = food.foodWithin(adjacent[i]);
+            }
+        }
+        if(best < 0) {
+            return null;
+        }
+        return field.getLocation(best);
+    }
+    
+    /**
+     * Find the free adjacent location nearest to food by the field's
+     * flow field. If no food can be reached, any free location will do.
+     * @return The location, or null if there is none.
+     */
+    private Location findWayToFood()
+    {
+        Field field = getField();
+        FlowField flow = field.getFlowField();
+        int[] adjacent = neighbourBuffer();
+        int count = field.neighbours(getLocation(), adjacent);
+        int best = -1;
+        for(int i = 0; i < count; i++) {
+            if(field.getSpeciesAt(adjacent[i]) != Species.DEER
+               && (best < 0 || flow.distanceAt(adjacent[i]) < flow.distanceAt(best))) {
+                best = adjacent[i];
             }
         }
-        currantPlantList = mostFood.getPlants();
-        if(currantPlantList.size() > 0) {
-            Plant food = currantPlantList.get(0);
+        if(best < 0) {
+            return null;
+        }
+        return field.getLocation(best);
+    }
+    
+    /**
+     * Eat the first plant at a location, if there is one.
+     * @param where The location to eat at.
+     * @return true if a plant was eaten.
+     */
+    private boolean eat(Location where)
+    {
+        Field field = getField();
+        int index = field.indexOf(where);
+        if(field.getPlantCount(index) > 0) {
+            Plant food = field.getPlant(index, 0);
             food.setDead();
-            currantPlantList.remove(0);
             if(healthLevel < MAX_HEALTH) {
                 healthLevel = healthLevel + GRASS_FOOD_VALUE;
             }        
-            return mostFood;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Plan the deer's step for the intent engine. The deer may give
+     * birth into a free adjacent square. It then looks for the square
+     * with the most plants among its own and the free squares around
+     * it, and intends to move there and eat. Without food it intends
+     * to move to a free square, the one nearest to food if the field
+     * keeps a flow field, and dies if there is none or if it has
+     * starved.
+     * @param intents A list to receive the deer's intents.
+     */
+    void plan(List<Intent> intents)
+    {
+        if(!isViable()) {
+            return;
+        }
+        Field field = getField();
+        int here = field.indexOf(getLocation());
+        int[] adjacent = neighbourBuffer();
+        int count = field.neighbours(here, adjacent);
+        FlowField flow = field.getFlowField();
+        int firstFree = -1;
+        int lastFree = -1;
+        int nearestFree = -1;
+        int mostFood = here;
+        int mostPlants = field.getPlantCount(here);
+        for(int i = 0; i < count; i++) {
+            if(field.getSpeciesAt(adjacent[i]) == Species.EMPTY) {
+                if(firstFree < 0) {
+                    firstFree = adjacent[i];
+                }
+                lastFree = adjacent[i];
+                if(flow != null && (nearestFree < 0
+                   || flow.distanceAt(adjacent[i]) < flow.distanceAt(nearestFree))) {
+                    nearestFree = adjacent[i];
+                }
+                int plants = field.getPlantCount(adjacent[i]);
+                if(plants > mostPlants) {
+                    mostFood = adjacent[i];
+                    mostPlants = plants;
+                }
+            }
+        }
+        
+        if(canBreed() && firstFree >= 0) {
+            intents.add(new Intent(Intent.Kind.SPAWN, this, firstFree, true, 0));
+        }
+        incrementAge();
+        if(mostPlants > 0) {
+            // Health is lowered once the deer has eaten.
+            intents.add(new Intent(Intent.Kind.EAT, this, mostFood, true, 0));
+            return;
+        }
+        healthLevel--;
+        if(healthLevel <= MIN_HEALTH || lastFree < 0) {
+            // Starved, or overcrowded.
+            intents.add(new Intent(Intent.Kind.DIE, this, here, false, 0));
+        }
+        else if(flow != null) {
+            // Head towards the nearest food.
+            intents.add(new Intent(Intent.Kind.MOVE, this, nearestFree, true, 0));
+        }
+        else {
+            intents.add(new Intent(Intent.Kind.MOVE, this, lastFree, true, 0));
+        }
+    }
+    
+    /**
+     * Carry out one of the deer's intents. A deer that loses the
+     * square it meant to move to stays where it is, without eating.
+     * @param intent The intent, as recorded by plan.
+     * @param won false if another thing was given the square.
+     * @param newDeers A list to receive newly born deer.
+     */
+    void carryOut(Intent intent, boolean won, List<Thing> newDeers)
+    {
+        Field field = getField();
+        Intent.Kind kind = intent.getKind();
+        if(kind == Intent.Kind.SPAWN) {
+            if(won) {
+                Deer young = new Deer(false, field, field.getLocation(intent.getTarget()));
+                newDeers.add(young);
+            }
+        }
+        else if(kind == Intent.Kind.EAT) {
+            if(won) {
+                Location where = field.getLocation(intent.getTarget());
+                setLocation(where);
+                eat(where);
+            }
+            lowerHealth();
+        }
+        else if(kind == Intent.Kind.MOVE) {
+            if(won) {
+                setLocation(field.getLocation(intent.getTarget()));
+            }
+        }
+        else if(kind == Intent.Kind.DIE) {
+            setDead();
         }
-        return null;
     }
     
     /**
@@ -148,8 +327,10 @@ public class Deer extends Animal
         if(canBreed()) {
             Field field = getField();
             Location free = field.freeAdjacentLocation(getLocation());
-            Deer young = new Deer(false, field, free);
-            newDeers.add(young);
+            if(free != null) {
+                Deer young = new Deer(false, field, free);
+                newDeers.add(young);
+            }
         }
     }
     
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Run many copies of the same simulation, with different random
+ * sequences, side by side on a fixed number of worker threads. Each
+ * simulation is headless and has its own field, things and random
+ * generator, so the simulations share nothing but the aggregator
+ * their populations are gathered in.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class Ensemble
+{
+    // The depth of each simulation's field.
+    private int depth;
+    // The width of each simulation's field.
+    private int width;
+    // The number of deer, grass plants and trees to start with.
+    private int deer, grass, trees;
+    // The number of steps run by the last ensemble, over all simulations.
+    private long stepsRun;
+    // The time taken by the last ensemble, in nanoseconds.
+    private long elapsed;
+
+    /**
+     * Create an ensemble of simulations of the given size.
+     * @param depth Depth of each field. Must be greater than zero.
+     * @param width Width of each field. Must be greater than zero.
+     * @param deer The number of deer to start with.
+     * @param grass The number of grass plants to start with.
+     * @param trees The number of trees to start with.
+     */
+    public Ensemble(int depth, int width, int deer, int grass, int trees)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.deer = deer;
+        this.grass = grass;
+        this.trees = trees;
+    }
+
+    /**
+     * Run a number of simulations for up to the given number of steps
+     * each, stopping any simulation early that ceases to be viable.
+     * Simulation n uses the seed Randomizer.getSimulationSeed(n), so each
+     * simulation's results do not depend on the number of threads.
+     * @param simulations The number of simulations to run.
+     * @param steps The most steps to run each simulation for.
+     * @param threads The number of worker threads.
+     * @return The population of every step, over all the simulations.
+     */
+    public PopulationAggregator run(int simulations, int steps, int threads)
+    {
+        if(threads <= 0) {
+            System.out.println("The number of threads must be greater than zero.");
+            System.out.println("Using one thread per processor.");
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        PopulationAggregator aggregator = new PopulationAggregator(steps);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for(int n = 0; n < simulations; n++) {
+            int simulation = n;
+            tasks.add(() -> runOne(simulation, steps, aggregator));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        stepsRun = 0;
+        try {
+            for(Future<Integer> result : pool.invokeAll(tasks)) {
+                stepsRun += result.get();
+            }
+        }
+        catch(InterruptedException e) {
+            System.out.println("The ensemble was interrupted.");
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException e) {
+            System.out.println("A simulation failed: " + e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        elapsed = System.nanoTime() - start;
+        return aggregator;
+    }
+
+    /**
+     * @return The number of steps run by the last ensemble, added up
+     *         over all of its simulations.
+     */
+    public long getStepsRun()
+    {
+        return stepsRun;
+    }
+
+    /**
+     * @return The number of simulation steps run per second by the
+     *         last ensemble, over all of its simulations.
+     */
+    public double getStepsPerSecond()
+    {
+        return elapsed == 0 ? 0 : stepsRun * 1e9 / elapsed;
+    }
+
+    /**
+     * Run one simulation of the ensemble.
+     * @param simulation The number of the simulation.
+     * @param steps The most steps to run.
+     * @param aggregator Where to gather the population.
+     * @return The number of steps run.
+     */
+    private int runOne(int simulation, int steps, PopulationAggregator aggregator)
+    {
+        Simulator simulator = new Simulator(depth, width, deer, grass, trees,
+                                            Randomizer.getSimulationSeed(simulation));
+        aggregator.stepCompleted(0, simulator.getField());
+        simulator.addListener(aggregator);
+        while(simulator.getStep() < steps && simulator.isViable()) {
+            simulator.simulateOneStep();
+        }
+        return simulator.getStep();
+    }
+}
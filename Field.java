@@ -1,15 +1,17 @@
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 import java.util.Objects;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal and an array of plants.
+ * The field also keeps track of fire: which squares are burning, and
+ * which have burnt out.
  * 
  * @author Rebecca McCranie
  *         (adapted from Foxes and Rabbits 
@@ -18,14 +20,81 @@ import java.util.ArrayList;
  */
 public class Field
 {
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    /**
+     * The ways in which a field can store its contents.
+     * OBJECTS keeps a grid of object references and a Location
+     * object for every square. ARRAYS keeps flat primitive arrays
+     * indexed by row * width + col, and only creates Location
+     * objects for the squares that are asked for.
+     */
+    public enum Storage
+    {
+        OBJECTS, ARRAYS
+    }
+    
     //The max number of plants that can be on any particular square
     public static final int MAX_PLANTS = 10;    
+    // The most neighbours a square can have.
+    public static final int MAX_NEIGHBOURS = 8;
+    // A buffer for the field's own neighbour lookups, one per thread.
+    private static final ThreadLocal<int[]> scratch =
+        ThreadLocal.withInitial(() -> new int[MAX_NEIGHBOURS]);
+    
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the animals.
+    // How the field stores its contents.
+    private Storage storage;
+    // Storage for the animals (OBJECTS storage only).
     private Object[][] field;
+    // The one Location object for each position in the field, by index.
+    // With ARRAYS storage these are created when first needed.
+    private Location[] locations;
+    
+    // The species code of the occupant of each square (ARRAYS storage).
+    private byte[] species;
+    // The id of the occupant of each square, 0 if empty (ARRAYS storage).
+    private int[] occupantIds;
+    // The number of plants in each square (ARRAYS storage).
+    private byte[] plantCounts;
+    // The first plant in each square, the others following it in the
+    // order they arrived, each linked to the next (ARRAYS storage).
+    private Plant[] firstPlants;
+    // A bit for each slot taken by a plant in each square (ARRAYS
+    // storage).
+    private short[] plantSlots;
+    // The occupants, by id. Slot 0 is never used. A square holds at
+    // most one occupant, so there is room for one id per square and
+    // the table never needs to grow; threads of the parallel engine
+    // may then read it while others place things elsewhere.
+    private Object[] occupants;
+    // The ids released by occupants that have left, ready for reuse.
+    private int[] freeIds;
+    // The number of ids in freeIds.
+    private int freeCount;
+    // The next id that has never been used.
+    private int nextId;
+    // The neighbours of each square, in random orders.
+    private Neighbourhood neighbourhood;
+    // The population of the field, kept up to date as things come and go.
+    private FieldStats stats;
+    // The step the simulation is running, or 0 before the first.
+    private int step;
+    // The fire in each square.
+    private FireLayer fire;
+    // Which neighbours of each square have room, and which have grass.
+    private CapacityIndex capacity;
+    // The food around each square, or null if this is not being
+    // tracked.
+    private FoodIndex food;
+    // The counts of each species in each rectangle of the field, or
+    // null if these are not being kept.
+    private RegionStats regions;
+    // The distance of each square from food, or null if this is not
+    // being tracked.
+    private FlowField flow;
+    // Which parts of the field have changed lately, or null if this
+    // is not being tracked.
+    private ActiveTiles activeTiles;
 
     /**
      * Represent a field of the given dimensions.
@@ -33,22 +102,296 @@ public class Field
      * @param width The width of the field.
      */
     public Field(int depth, int width)
+    {
+        this(depth, width, Storage.OBJECTS);
+    }
+    
+    /**
+     * Represent a field of the given dimensions, using the given
+     * kind of storage.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param storage How the field stores its contents.
+     */
+    public Field(int depth, int width, Storage storage)
     {
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        this.storage = storage;
+        stats = new FieldStats();
+        locations = new Location[depth * width];
+        neighbourhood = new Neighbourhood(depth, width);
+        fire = new FireLayer(depth * width);
+        capacity = new CapacityIndex(neighbourhood, depth * width);
+        if(storage == Storage.ARRAYS) {
+            species = new byte[depth * width];
+            occupantIds = new int[depth * width];
+            plantCounts = new byte[depth * width];
+            firstPlants = new Plant[depth * width];
+            plantSlots = new short[depth * width];
+            occupants = new Object[depth * width + 1];
+            freeIds = new int[depth * width];
+            nextId = 1;
+        }
+        else {
+            field = new Object[depth][width];
+            for(int row = 0; row < depth; row++) {
+                for(int col = 0; col < width; col++) {
+                    locations[row * width + col] = new Location(row, col);
+                }
+            }
+        }
     }
     
     /**
-     * Empty the field.
+     * Empty the field of animals, plants and fire.
      */
     public void clear()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
+        if(storage == Storage.ARRAYS) {
+            Arrays.fill(species, Species.EMPTY);
+            Arrays.fill(occupantIds, 0);
+            Arrays.fill(plantCounts, (byte) 0);
+            Arrays.fill(firstPlants, null);
+            Arrays.fill(plantSlots, (short) 0);
+            Arrays.fill(occupants, null);
+            freeCount = 0;
+            nextId = 1;
+        }
+        else {
+            for(int row = 0; row < depth; row++) {
+                for(int col = 0; col < width; col++) {
+                    field[row][col] = null;
+                }
+            }
+        }
+        for(Location location : locations) {
+            if(location != null) {
+                location.clearPlants();
+            }
+        }
+        fire.clear();
+        capacity.clear();
+        if(food != null) {
+            food.clear();
+        }
+        if(regions != null) {
+            regions.clear();
+        }
+        if(activeTiles != null) {
+            activeTiles.clear(step);
+        }
+        stats.reset();
+        updateFlowField();
+    }
+    
+    /**
+     * Return the location object for the given position. The same
+     * object is returned every time, so any plants stored in it are
+     * seen by everyone using the location.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The location at that position.
+     */
+    public Location getLocation(int row, int col)
+    {
+        int index = row * width + col;
+        Location location = locations[index];
+        if(location == null) {
+            location = new Location(row, col);
+            locations[index] = location;
+        }
+        return location;
+    }
+    
+    /**
+     * Return the location object for the square with the given index.
+     * @param index The index of the square, row * width + col.
+     * @return The location of that square.
+     */
+    public Location getLocation(int index)
+    {
+        Location location = locations[index];
+        if(location == null) {
+            location = getLocation(index / width, index % width);
+        }
+        return location;
+    }
+    
+    /**
+     * Return the index of a location's square: row * width + col.
+     * @param location The location.
+     * @return The index of its square.
+     */
+    public int indexOf(Location location)
+    {
+        return location.getRow() * width + location.getCol();
+    }
+    
+    /**
+     * Return the population of the field, which is kept up to date as
+     * things are placed in and removed from it.
+     * @return The field's statistics.
+     */
+    public FieldStats getStats()
+    {
+        return stats;
+    }
+    
+    /**
+     * Record the step the simulation is running, so that things can
+     * work out their ages from the step they were born in.
+     * @param step The step being run, or 0 before the first.
+     */
+    public void setStep(int step)
+    {
+        this.step = step;
+    }
+    
+    /**
+     * Return the step the simulation is running.
+     * @return The step being run, or 0 before the first.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+    
+    /**
+     * Keep track of which parts of the field have changed lately, so
+     * that things in the quiet parts can sleep.
+     * @param tileSize The side of the tiles to track, in squares, or
+     *        0 to stop tracking.
+     */
+    public void trackActivity(int tileSize)
+    {
+        if(tileSize > 0) {
+            activeTiles = new ActiveTiles(depth, width, tileSize, step);
+        }
+        else {
+            activeTiles = null;
+        }
+    }
+    
+    /**
+     * @return The record of which parts of the field have changed
+     *         lately, or null if this is not being tracked.
+     */
+    public ActiveTiles getActiveTiles()
+    {
+        return activeTiles;
+    }
+    
+    /**
+     * Choose whether to keep track of the food around each square,
+     * so that deer can find it without looking at every neighbour,
+     * and can sense the food within a radius of them.
+     * @param radius The number of squares on each side of a square
+     *        whose plants are summed, or 0 to stop tracking.
+     */
+    public void trackFood(int radius)
+    {
+        if(radius > 0) {
+            food = new FoodIndex(neighbourhood, depth, width, radius);
+            for(int index = 0; index < depth * width; index++) {
+                int plants = getPlantCount(index);
+                if(plants > 0) {
+                    food.change(index, plants);
+                }
             }
         }
+        else {
+            food = null;
+        }
+    }
+    
+    /**
+     * @return The food around each square, or null if this is not
+     *         being tracked.
+     */
+    public FoodIndex getFoodIndex()
+    {
+        return food;
+    }
+    
+    /**
+     * Choose whether to keep a flow field, giving the distance of each
+     * square from the nearest plants, for deer to find their way to
+     * food they cannot see.
+     * @param on true to keep one.
+     */
+    public void trackFlow(boolean on)
+    {
+        if(on) {
+            flow = new FlowField(neighbourhood, depth * width);
+            updateFlowField();
+        }
+        else {
+            flow = null;
+        }
+    }
+    
+    /**
+     * Find the distances of the flow field again from the plants in
+     * the field now, if a flow field is being kept. The simulator does
+     * this once at the start of each step.
+     */
+    public void updateFlowField()
+    {
+        if(flow != null) {
+            flow.rebuild(index -> getPlantCount(index) > 0);
+        }
+    }
+    
+    /**
+     * @return The distance of each square from the nearest plants, as
+     *         at the start of the step, or null if this is not being
+     *         tracked.
+     */
+    public FlowField getFlowField()
+    {
+        return flow;
+    }
+    
+    /**
+     * Choose whether to keep counts of each species that can be found
+     * for any rectangle of the field without scanning it.
+     * @param method How the counts of rectangles are to be found, or
+     *        null to stop keeping them.
+     */
+    public void trackRegions(RegionStats.Method method)
+    {
+        if(method == null) {
+            regions = null;
+            return;
+        }
+        regions = new RegionStats(depth, width, method);
+        for(int index = 0; index < depth * width; index++) {
+            regions.change(getSpeciesAt(index), index, 1);
+            for(int n = 0; n < getPlantCount(index); n++) {
+                regions.change(Species.codeOf(getPlant(index, n)), index, 1);
+            }
+        }
+    }
+    
+    /**
+     * Return the counts of each species in each rectangle of the
+     * field, which are kept, if asked for, alongside the totals in
+     * getStats.
+     * @return The counts, or null if they are not being kept.
+     */
+    public RegionStats getRegionStats()
+    {
+        return regions;
+    }
+    
+    /**
+     * Return how the field stores its contents.
+     * @return The kind of storage.
+     */
+    public Storage getStorage()
+    {
+        return storage;
     }
     
     /**
@@ -57,7 +400,21 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        int index = location.getRow() * width + location.getCol();
+        if(regions != null) {
+            regions.change(getSpeciesAt(index), index, -1);
+        }
+        if(storage == Storage.ARRAYS) {
+            stats.removed(species[index]);
+            releaseId(occupantIds[index]);
+            occupantIds[index] = 0;
+            species[index] = Species.EMPTY;
+        }
+        else {
+            stats.removed(Species.codeOf(field[location.getRow()][location.getCol()]));
+            field[location.getRow()][location.getCol()] = null;
+        }
+        touch(location);
     }
     
     /**
@@ -70,7 +427,7 @@ public class Field
      */
     public void place(Object organism, int row, int col)
     {
-        place(organism, new Location(row, col));
+        place(organism, getLocation(row, col));
     }
     
     /**
@@ -82,7 +439,24 @@ public class Field
      */
     public void place(Object organism, Location location)
     {
-        field[location.getRow()][location.getCol()] = organism;
+        int index = location.getRow() * width + location.getCol();
+        if(regions != null) {
+            regions.change(getSpeciesAt(index), index, -1);
+            regions.change(Species.codeOf(organism), index, 1);
+        }
+        if(storage == Storage.ARRAYS) {
+            stats.removed(species[index]);
+            releaseId(occupantIds[index]);
+            int id = allocateId(organism);
+            occupantIds[index] = id;
+            species[index] = Species.codeOf(organism);
+        }
+        else {
+            stats.removed(Species.codeOf(field[location.getRow()][location.getCol()]));
+            field[location.getRow()][location.getCol()] = organism;
+        }
+        stats.placed(Species.codeOf(organism));
+        touch(location);
     }
     
     /**
@@ -103,25 +477,319 @@ public class Field
      */
     public Object getObjectAt(int row, int col)
     {
+        if(storage == Storage.ARRAYS) {
+            return occupants[occupantIds[row * width + col]];
+        }
         return field[row][col];
     }
     
-       
-    public boolean checkForFire()
+    /**
+     * Return the species code of the animal at the given location.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The species code, or Species.EMPTY if there is none.
+     */
+    public byte getSpeciesAt(int row, int col)
+    {
+        if(storage == Storage.ARRAYS) {
+            return species[row * width + col];
+        }
+        return Species.codeOf(field[row][col]);
+    }
+    
+    /**
+     * Return the species code of the animal at the given location.
+     * @param location Where in the field.
+     * @return The species code, or Species.EMPTY if there is none.
+     */
+    public byte getSpeciesAt(Location location)
     {
-        boolean fire = false;
-        for(int row = 0; row < getDepth(); row++) {
-            for(int col = 0; col < getWidth(); col++) {
-                Object obj = getObjectAt(row, col);
-                if(obj instanceof Fire) {
-                    fire = true;
+        return getSpeciesAt(location.getRow(), location.getCol());
+    }
+    
+    /**
+     * Return the species code of the animal in a square.
+     * @param index The index of the square.
+     * @return The species code, or Species.EMPTY if there is none.
+     */
+    public byte getSpeciesAt(int index)
+    {
+        if(storage == Storage.ARRAYS) {
+            return species[index];
+        }
+        return Species.codeOf(field[index / width][index % width]);
+    }
+    
+    /**
+     * Return the number of plants in a square.
+     * @param index The index of the square.
+     * @return The number of plants.
+     */
+    public int getPlantCount(int index)
+    {
+        if(storage == Storage.ARRAYS) {
+            return plantCounts[index];
+        }
+        return locations[index].getPlantCount();
+    }
+    
+    /**
+     * Return the number of plants at the given location.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The number of plants.
+     */
+    public int getPlantCount(int row, int col)
+    {
+        if(storage == Storage.ARRAYS) {
+            return plantCounts[row * width + col];
+        }
+        return locations[row * width + col].getPlantCount();
+    }
+    
+    /**
+     * Return one of the plants in a square.
+     * @param index The index of the square.
+     * @param n Which plant, from 0 to getPlantCount(index) - 1, in
+     *        the order they arrived.
+     * @return The plant.
+     */
+    public Plant getPlant(int index, int n)
+    {
+        if(storage == Storage.ARRAYS) {
+            Plant plant = firstPlants[index];
+            for(; n > 0; n--) {
+                plant = plant.getNextInSquare();
+            }
+            return plant;
+        }
+        return locations[index].getPlants().get(n);
+    }
+    
+    /**
+     * @param index The index of a square.
+     * @return The first grass plant in the square, or null if there
+     *         is none.
+     */
+    public Grass findGrass(int index)
+    {
+        for(int n = 0; n < getPlantCount(index); n++) {
+            Plant plant = getPlant(index, n);
+            if(plant instanceof Grass) {
+                return (Grass) plant;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Find the main plant at the given location. Trees overshadow
+     * grass. Used to determine the color of the square.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The class of the dominant plant, or null if there are none.
+     */
+    public Class<?> getMainPlant(int row, int col)
+    {
+        int index = row * width + col;
+        Class<?> main = null;
+        for(int n = 0; n < getPlantCount(index); n++) {
+            Plant plant = getPlant(index, n);
+            if(plant instanceof Tree) {
+                return Tree.class;
+            }
+            else if(plant instanceof Grass) {
+                main = Grass.class;
+            }
+        }
+        return main;
+    }
+    
+    /**
+     * Count the animals in the field by species.
+     * @return The number of occupants of each species, indexed
+     *         by species code.
+     */
+    public int[] countSpecies()
+    {
+        int speciesCount = Species.count();
+        int[] counts = new int[speciesCount];
+        if(storage == Storage.ARRAYS) {
+            // Four separate tallies, so that consecutive squares of the
+            // same species do not wait on each other's increments.
+            int[][] tallies = new int[4][speciesCount];
+            int index = 0;
+            for(; index + 3 < species.length; index += 4) {
+                tallies[0][species[index]]++;
+                tallies[1][species[index + 1]]++;
+                tallies[2][species[index + 2]]++;
+                tallies[3][species[index + 3]]++;
+            }
+            for(; index < species.length; index++) {
+                counts[species[index]]++;
+            }
+            for(int[] tally : tallies) {
+                for(int code = 0; code < speciesCount; code++) {
+                    counts[code] += tally[code];
                 }
             }
         }
-        return fire;
+        else {
+            for(int row = 0; row < depth; row++) {
+                for(int col = 0; col < width; col++) {
+                    counts[Species.codeOf(field[row][col])]++;
+                }
+            }
+        }
+        return counts;
     }
-        
-        
+    
+    /**
+     * Add a plant to the given location.
+     * @param plant The plant to be added.
+     * @param location Where the plant grows.
+     */
+    public void addPlant(Plant plant, Location location)
+    {
+        int index = location.getRow() * width + location.getCol();
+        boolean firstGrass = plant instanceof Grass && findGrass(index) == null;
+        if(storage == Storage.ARRAYS) {
+            linkPlant(index, plant);
+            plantCounts[index]++;
+        }
+        else {
+            locations[index].addPlant(plant);
+        }
+        if(getPlantCount(index) == MAX_PLANTS) {
+            capacity.setFull(index, true);
+        }
+        if(firstGrass) {
+            capacity.setGrassy(index, true);
+        }
+        if(food != null) {
+            food.change(index, 1);
+        }
+        if(regions != null) {
+            regions.change(Species.codeOf(plant), index, 1);
+        }
+        stats.placed(Species.codeOf(plant));
+        touch(location);
+    }
+    
+    /**
+     * Remove a plant from the given location.
+     * @param plant The plant to be removed.
+     * @param location Where the plant grows.
+     */
+    public void removePlant(Plant plant, Location location)
+    {
+        int index = location.getRow() * width + location.getCol();
+        boolean removed = (storage == Storage.ARRAYS) ? unlinkPlant(index, plant)
+                                                      : locations[index].removePlant(plant);
+        if(removed) {
+            if(storage == Storage.ARRAYS) {
+                plantCounts[index]--;
+            }
+            if(getPlantCount(index) == MAX_PLANTS - 1) {
+                capacity.setFull(index, false);
+            }
+            if(plant instanceof Grass && findGrass(index) == null) {
+                capacity.setGrassy(index, false);
+            }
+            if(food != null) {
+                food.change(index, -1);
+            }
+            if(regions != null) {
+                regions.change(Species.codeOf(plant), index, -1);
+            }
+            stats.removed(Species.codeOf(plant));
+            touch(location);
+        }
+    }
+    
+    /**
+     * @return true if there is a fire anywhere in the field.
+     */
+    public boolean checkForFire()
+    {
+        return fire.getFrontSize() > 0;
+    }
+    
+    /**
+     * Set a square alight, if it has plants to burn, nothing else is
+     * there, and it is not burning or burnt out already. It starts
+     * burning on the next sweep of the fire.
+     * @param index The index of the square.
+     * @param intensity The number of sweeps it is to burn for.
+     * @return true if the square caught fire.
+     */
+    public boolean ignite(int index, int intensity)
+    {
+        return getPlantCount(index) > 0 && getSpeciesAt(index) == Species.EMPTY
+               && fire.ignite(index, intensity);
+    }
+    
+    /**
+     * @param index The index of a square.
+     * @return true if the square is burning.
+     */
+    public boolean isBurning(int index)
+    {
+        return fire.isBurning(index);
+    }
+    
+    /**
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return true if the square is burning.
+     */
+    public boolean isBurning(int row, int col)
+    {
+        return fire.isBurning(row * width + col);
+    }
+    
+    /**
+     * @return The number of burning squares.
+     */
+    public int getFireFrontSize()
+    {
+        return fire.getFrontSize();
+    }
+    
+    /**
+     * @param i The position in the fire front, from 0 to
+     *        getFireFrontSize() - 1; squares set alight later
+     *        come later.
+     * @return The index of a burning square.
+     */
+    public int getFireFront(int i)
+    {
+        return fire.getFront(i);
+    }
+    
+    /**
+     * Let the first squares of the fire front burn down by one sweep.
+     * Those with no sweeps left, or no plants left, burn out. Squares
+     * set alight during the sweep stay on the front as they are. Once
+     * no square is burning, the burnt-out squares may catch fire again.
+     * @param burning The number of squares that were swept.
+     */
+    public void coolFire(int burning)
+    {
+        fire.cool(burning, cell -> getPlantCount(cell) > 0);
+    }
+    
+    /**
+     * Record a change at a location, if activity is being tracked.
+     * @param location Where the field changed.
+     */
+    private void touch(Location location)
+    {
+        if(activeTiles != null) {
+            activeTiles.touch(location.getRow() * width + location.getCol(), step);
+        }
+    }
+    
     /**
      * Generate a random location that is adjacent to the
      * given location, or is the same location.
@@ -132,8 +800,12 @@ public class Field
      */
     public Location randomAdjacentLocation(Location location)
     {
-        List<Location> adjacent = adjacentLocations(location);
-        return adjacent.get(0);
+        int[] adjacent = scratch.get();
+        if(neighbours(location, adjacent) == 0) {
+            // A field of one square has no neighbours.
+            return location;
+        }
+        return getLocation(adjacent[0]);
     }
     
     /**
@@ -146,8 +818,7 @@ public class Field
         List<Location> free = new LinkedList<>();
         List<Location> adjacent = adjacentLocations(location);
         for(Location next : adjacent) {
-            Object obj = getObjectAt(next);
-            boolean taken = obj instanceof Deer;
+            boolean taken = getSpeciesAt(next) == Species.DEER;
             if(!taken) {
                 free.add(next);
             }
@@ -165,14 +836,14 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
-        }
-        else {
-            return null;
+        int[] adjacent = scratch.get();
+        int count = neighbours(location, adjacent);
+        for(int i = 0; i < count; i++) {
+            if(getSpeciesAt(adjacent[i]) != Species.DEER) {
+                return getLocation(adjacent[i]);
+            }
         }
+        return null;
     }
         
     /**
@@ -186,29 +857,160 @@ public class Field
     {
         assert location != null : "Null location passed to adjacentLocations";
         // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
+        List<Location> locations = new ArrayList<>(MAX_NEIGHBOURS);
         if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
+            int[] adjacent = scratch.get();
+            int count = neighbours(location, adjacent);
+            for(int i = 0; i < count; i++) {
+                locations.add(getLocation(adjacent[i]));
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
         }
         return locations;
     }
+    
+    /**
+     * Write the indices of the squares adjacent to the given location
+     * into a buffer, in a random order. Nothing is allocated, so this
+     * is the way to look at neighbours in code that runs for every 
+     * thing on every step.
+     * @param location The location from which to find adjacencies.
+     * @param buffer Receives the indices; must hold MAX_NEIGHBOURS.
+     * @return The number of neighbours written.
+     */
+    public int neighbours(Location location, int[] buffer)
+    {
+        int row = location.getRow();
+        int col = location.getCol();
+        return neighbourhood.neighbours(row * width + col, row, col, buffer);
+    }
+    
+    /**
+     * Choose, at random, a square next to the given location with room
+     * for another plant. Every such square is as likely as the others,
+     * and the choice takes no search: the field keeps track of which
+     * neighbours of each square have room.
+     * @param location The location to look around.
+     * @return The index of the square, or -1 if every neighbour is full.
+     */
+    public int pickRoomNear(Location location)
+    {
+        return capacity.pickRoom(indexOf(location));
+    }
+    
+    /**
+     * Choose, at random, a square next to the given location with
+     * grass, in the same way as pickRoomNear.
+     * @param location The location to look around.
+     * @return The index of the square, or -1 if no neighbour has grass.
+     */
+    public int pickGrassNear(Location location)
+    {
+        return capacity.pickGrass(indexOf(location));
+    }
+    
+    /**
+     * Write the indices of the squares adjacent to the given square
+     * into a buffer, in a random order.
+     * @param index The index of the square.
+     * @param buffer Receives the indices; must hold MAX_NEIGHBOURS.
+     * @return The number of neighbours written.
+     */
+    public int neighbours(int index, int[] buffer)
+    {
+        return neighbourhood.neighbours(index, buffer);
+    }
+    
+
+    /**
+     * Add a plant to the end of a square's plants, giving it the
+     * lowest slot no other plant there holds (ARRAYS storage).
+     * @param index The index of the square.
+     * @param plant The plant.
+     */
+    private void linkPlant(int index, Plant plant)
+    {
+        int slot = Integer.numberOfTrailingZeros(~plantSlots[index]);
+        plantSlots[index] |= (short) (1 << slot);
+        plant.setSlot(slot);
+        plant.setNextInSquare(null);
+        if(firstPlants[index] == null) {
+            firstPlants[index] = plant;
+        }
+        else {
+            Plant last = firstPlants[index];
+            while(last.getNextInSquare() != null) {
+                last = last.getNextInSquare();
+            }
+            last.setNextInSquare(plant);
+        }
+    }
+    
+    /**
+     * Take a plant out of a square's plants, freeing its slot (ARRAYS
+     * storage).
+     * @param index The index of the square.
+     * @param plant The plant.
+     * @return true if the plant was growing there.
+     */
+    private boolean unlinkPlant(int index, Plant plant)
+    {
+        Plant previous = null;
+        Plant current = firstPlants[index];
+        while(current != null && current != plant) {
+            previous = current;
+            current = current.getNextInSquare();
+        }
+        if(current == null) {
+            return false;
+        }
+        if(previous == null) {
+            firstPlants[index] = plant.getNextInSquare();
+        }
+        else {
+            previous.setNextInSquare(plant.getNextInSquare());
+        }
+        plant.setNextInSquare(null);
+        plantSlots[index] &= (short) ~(1 << plant.getSlot());
+        return true;
+    }
+    
+    /**
+     * Give an occupant an id, recording it in the occupant table.
+     * Things in different parts of the field may be placed at the
+     * same time by the parallel engine, so the table is locked.
+     * @param organism The occupant.
+     * @return Its id, or 0 if it is null.
+     */
+    private synchronized int allocateId(Object organism)
+    {
+        if(organism == null) {
+            return 0;
+        }
+        int id;
+        if(freeCount > 0) {
+            freeCount--;
+            id = freeIds[freeCount];
+        }
+        else {
+            id = nextId;
+            nextId++;
+        }
+        occupants[id] = organism;
+        return id;
+    }
+    
+    /**
+     * Release an occupant's id so that it can be reused.
+     * @param id The id, or 0 for none.
+     */
+    private synchronized void releaseId(int id)
+    {
+        if(id != 0) {
+            occupants[id] = null;
+            freeIds[freeCount] = id;
+            freeCount++;
+        }
+    }
 
     /**
      * Return the depth of the field.
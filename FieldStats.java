@@ -1,128 +1,223 @@
-import java.awt.Color;
-import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
- * 
+ * This class collects and provides some statistical data on the state
+ * of a field. The field keeps it up to date as things are placed in
+ * and removed from it, so the population of each species, and whether
+ * the simulation is still viable, can be found without looking at the
+ * field. Things may be placed and removed on several threads at once.
+ *
+ * For debugging, the counts can be checked against a full scan of the
+ * field every so many steps.
+ *
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
-public class FieldStats
+public class FieldStats implements SimulatorListener
 {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private HashMap<Class, Counter> counters;
-    // Whether the counters are currently up to date.
-    private boolean countsValid;
+    // The number of things of each species in the field, indexed by
+    // species code.
+    private LongAdder[] counts;
+    // The number of steps between checks against a full scan, or 0
+    // for no checks.
+    private int checkInterval;
 
     /**
      * Construct a FieldStats object.
      */
     public FieldStats()
     {
-        // Set up a collection for counters for each type of animal that
-        // we might find
-        counters = new HashMap<>();
-        countsValid = true;
+        counts = new LongAdder[Species.count()];
+        for(int code = 0; code < counts.length; code++) {
+            counts[code] = new LongAdder();
+        }
+        checkInterval = 0;
     }
 
     /**
-     * Get details of what is in the field.
+     * Get details of what is in the field, with the burning squares
+     * counted as fires.
      * @return A string describing what is in the field.
      */
     public String getPopulationDetails(Field field)
     {
         StringBuffer buffer = new StringBuffer();
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            buffer.append(info.getName());
+        for(int code = 1; code < counts.length; code++) {
+            buffer.append(Species.nameOf(code));
             buffer.append(": ");
-            buffer.append(info.getCount());
+            buffer.append(getCount(code));
             buffer.append(' ');
         }
+        buffer.append("Fire: ");
+        buffer.append(field.getFireFrontSize());
+        buffer.append(' ');
         return buffer.toString();
     }
-    
+
     /**
-     * Invalidate the current set of statistics; reset all 
-     * counts to zero.
+     * Set all counts to zero, as for an empty field.
      */
     public void reset()
     {
-        countsValid = false;
-        for(Class key : counters.keySet()) {
-            Counter count = counters.get(key);
+        for(LongAdder count : counts) {
             count.reset();
         }
     }
 
     /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
+     * Record that a thing has been placed in the field.
+     * @param species The species code of the thing.
+     */
+    public void placed(int species)
+    {
+        if(species != Species.EMPTY) {
+            counts[species].increment();
+        }
+    }
+
+    /**
+     * Record that a thing has been removed from the field.
+     * @param species The species code of the thing.
      */
-    public void incrementCount(Class objectClass)
+    public void removed(int species)
     {
-        Counter count = counters.get(objectClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(objectClass.getName());
-            counters.put(objectClass, count);
+        if(species != Species.EMPTY) {
+            counts[species].decrement();
         }
-        count.increment();
     }
 
     /**
-     * Indicate that an animal count has been completed.
+     * @param species A species code.
+     * @return The number of things of the species in the field.
+     */
+    public int getCount(int species)
+    {
+        return counts[species].intValue();
+    }
+
+    /**
+     * Take a snapshot of the counts of every species.
+     * @return The number of things of each species, indexed by
+     *         species code.
+     */
+    public int[] getCounts()
+    {
+        return getCounts(new int[counts.length]);
+    }
+
+    /**
+     * Take a snapshot of the counts of every species into the given
+     * array, so that a series of snapshots need not allocate.
+     * @param snapshot An array at least as long as the number of
+     *        species when the statistics were created.
+     * @return The snapshot, indexed by species code.
      */
-    public void countFinished()
+    public int[] getCounts(int[] snapshot)
     {
-        countsValid = true;
+        for(int code = 0; code < counts.length; code++) {
+            snapshot[code] = getCount(code);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return The number of species counted, including EMPTY.
+     */
+    public int getSpeciesCount()
+    {
+        return counts.length;
     }
 
     /**
      * Determine whether the simulation is still viable.
      * I.e., should it continue to run.
-     * @return true If there is more than one species alive.
+     * @return true If there is more than one species alive, a fire
+     *         counting as one.
      */
     public boolean isViable(Field field)
     {
         // How many counts are non-zero.
         int nonZero = 0;
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            if(info.getCount() > 0) {
+        for(int code = 1; code < counts.length; code++) {
+            if(getCount(code) > 0) {
                 nonZero++;
             }
         }
+        if(field.checkForFire()) {
+            nonZero++;
+        }
         return nonZero > 1;
     }
-    
+
+    /**
+     * Check the counts against a full scan of the field every so
+     * many steps, for debugging.
+     * @param checkInterval The number of steps between checks, or 0
+     *        not to check.
+     */
+    public void setCheckInterval(int checkInterval)
+    {
+        if(checkInterval < 0) {
+            System.out.println("The check interval must not be negative.");
+            System.out.println("Using default values.");
+            checkInterval = 0;
+        }
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Check the counts against a full scan, if one is due.
+     * @param step The step just run.
+     * @param field The field after the step.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        if(checkInterval > 0 && step % checkInterval == 0) {
+            check(step, field);
+        }
+    }
+
+    /**
+     * Compare the counts with a full scan of the field. Any count
+     * that differs is reported and corrected.
+     * @param step The step just run, for the report.
+     * @param field The field to scan.
+     * @return true if every count was right.
+     */
+    public boolean check(int step, Field field)
+    {
+        int[] scanned = generateCounts(field);
+        boolean correct = true;
+        for(int code = 1; code < counts.length; code++) {
+            int count = getCount(code);
+            if(count != scanned[code]) {
+                System.out.println("Step " + step + ": the count of "
+                                   + Species.nameOf(code) + " is " + count
+                                   + " but the field holds " + scanned[code] + ".");
+                counts[code].add(scanned[code] - count);
+                correct = false;
+            }
+        }
+        return correct;
+    }
+
     /**
-     * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
+     * Count the things in the field by species, looking at every square.
      * @param field The field to generate the stats for.
+     * @return The number of things of each species, indexed by
+     *         species code.
      */
-    private void generateCounts(Field field)
+    private int[] generateCounts(Field field)
     {
-        reset();
+        int[] scanned = field.countSpecies();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                Object object = field.getObjectAt(row, col);
-                if(object != null) {
-                    incrementCount(object.getClass());
+                int index = row * field.getWidth() + col;
+                for(int n = 0; n < field.getPlantCount(index); n++) {
+                    scanned[Species.codeOf(field.getPlant(index, n))]++;
                 }
             }
         }
-        countsValid = true;
+        return scanned;
     }
 }
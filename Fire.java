@@ -1,148 +1,95 @@
-import java.util.List;
-import java.util.Iterator;
-import java.util.Random;
-import java.util.ArrayList;
+import java.util.random.RandomGenerator;
 
 /**
  * A simple model of fire.
- * Fire starts, moves, kills grass and trees, and burns out.
- * 
+ * Fire starts, spreads, kills grass and trees, and burns out.
+ *
+ * Fire is not a thing that moves about the field but a state of its
+ * squares, kept by the field: unburnt, burning with some intensity
+ * left, or burnt out. Each step, every burning square may kill each
+ * plant in it, and sets alight the unburnt squares with plants around
+ * it. Only the burning squares are looked at, so a step costs time in
+ * proportion to the fire front, however large the fire has grown.
+ *
  * @author Rebecca McCranie
- *         (adapted from Foxes and Rabbits 
+ *         (adapted from Foxes and Rabbits
  *         by David J. Barnes and Michael Kölling, 2016.02.29 (2))
  * @version 2020.04.01
  */
-public class Fire extends Thing
+public class Fire
 {
-    
-    private static final Random rand = Randomizer.getRandom();
-    
-    // The probability that a fire will start
-    private static final double FIRE_PROBABILITY = 1;
     // The probability that a fire will kill a tree.
     private static final double TREE_DEATH_PROBABILITY= 0.60;
     // The probability that a fire will kill grass.
     private static final double GRASS_DEATH_PROBABILITY = 0.75;
-    
-    
-    
+    // The number of steps a square burns for, if its plants last.
+    public static final int INTENSITY = 2;
+
     /**
-     * Create fire. 
-     * 
-     * @param field The field currently occupied.
-     * @param location The location within the field.
+     * Set alight the plants at the given location, if there are any
+     * and nothing else is there.
+     * @param field The field.
+     * @param location Where the fire starts.
+     * @return true if the fire started.
      */
-    public Fire(Field field, Location location)
+    public static boolean startFire(Field field, Location location)
     {
-        super(field, location);
+        return field.ignite(field.indexOf(location), INTENSITY);
     }
-        
+
     /**
-     * This is what fire does most of the time: it looks for
-     * grass or trees to burn.
-     * 
-     * @param field The field currently occupied.
-     * @param newDeers A list to return newly born deer.
+     * Run one step of every fire in the field. Each burning square
+     * may kill each of its plants, and sets alight the unburnt
+     * squares with plants around it, which start burning next step.
+     * Then every burning square loses some intensity, and those with
+     * none left, or no plants left, burn out.
+     * @param field The field.
      */
-    public void act(List<Thing> newFire)
+    public static void spread(Field field)
     {
-        if(isViable()) {
-            spread(newFire);
-            Location newLocation = findFuel();
-        
-            if(newLocation == null) {
-            // No food found - try to move to a free location.
-            newLocation = getField().randomAdjacentLocation(getLocation());
-            }
-            // See if it was possible to move.
-            if(newLocation != null) {
-             setLocation(newLocation);
-            }
-            else {
-             // Overcrowding.
-             setDead();
+        RandomGenerator rand = Randomizer.getRandom();
+        int[] adjacent = new int[Field.MAX_NEIGHBOURS];
+        int burning = field.getFireFrontSize();
+        for(int i = 0; i < burning; i++) {
+            int cell = field.getFireFront(i);
+            burnPlants(field, cell, rand);
+            int count = field.neighbours(cell, adjacent);
+            for(int n = 0; n < count; n++) {
+                field.ignite(adjacent[n], INTENSITY);
             }
         }
+        field.coolFire(burning);
     }
-    
-        
-    /**
-     * If no fire is already burning, start a fire in the field.
-     */
-    private void startFire()
-    {
-        Random rand = Randomizer.getRandom();
-        Field field = getField();
-        int row = rand.nextInt(field.getWidth());
-        int col = rand.nextInt(field.getDepth());
-        Location location = new Location(row, col);
-        Fire newFire = new Fire(field, location);        
-    }
-    
-  
+
     /**
-     * Look for plants adjacent to the current location.
-     * Plants have a chance of dying by fire based on type.
-     * @return Where fuel was found, or null if it wasn't.
+     * Give each plant in a burning square its chance of dying.
+     * @param field The field.
+     * @param cell The index of the burning square.
+     * @param rand The random generator.
      */
-    private Location findFuel()
+    private static void burnPlants(Field field, int cell, RandomGenerator rand)
     {
-        Random rand = Randomizer.getRandom();
-        Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        Location currantLocation = getLocation();
-        ArrayList<Plant> plantsInSquare = currantLocation.getPlants();
-        while(it.hasNext()) {
-            Location where = it.next();
-            ArrayList<Plant> plants = where.getPlants();
-            if(plants.size() > 0) {
-                for(Plant plant : plants) {
-                    double death = 0;
-                    if(plant instanceof Grass) {
-                        death = GRASS_DEATH_PROBABILITY;
-                    }
-                    else if(plant instanceof Tree) {
-                        death = TREE_DEATH_PROBABILITY;
-                    }
-                
-                    if(rand.nextDouble() <= death) {
-                        plant.setDead();
-                    }
-                    return where;
-                }         
+        // Backwards, as dead plants leave the square.
+        for(int p = field.getPlantCount(cell) - 1; p >= 0; p--) {
+            Plant plant = field.getPlant(cell, p);
+            if(rand.nextDouble() <= deathProbability(plant.getSpecies())) {
+                plant.setDead();
             }
         }
-        return null;
     }
+
     /**
-     * Fire will spread to any square with plants on it. 
-     * Each plant has a probability of dying by fire.
-     */
-    private void spread(List<Thing> newFire)
-    {
-      
-      Field field = getField();
-      List<Location> adjacent = field.adjacentLocations(getLocation());
-      for(Location location : adjacent) {
-          ArrayList<Plant> adjacentPlantList = location.getPlants();
-          if(adjacentPlantList.size() > 0) {
-              Fire fire = new Fire(field, location);
-              newFire.add(fire);
-            }
-      }
-      
-    }
-    
-       
-    /**
-     * If fire runs out of fuel, it dies.
+     * @param species The species code of a plant.
+     * @return The probability that the fire kills the plant.
      */
-    protected void setDead()
+    static double deathProbability(int species)
     {
-        boolean viable = isViable();
-        viable = false;
+        if(species == Species.GRASS) {
+            return GRASS_DEATH_PROBABILITY;
+        }
+        else if(species == Species.TREE) {
+            return TREE_DEATH_PROBABILITY;
+        }
+        return 0;
     }
-    
-    
 }
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The fire in each square of a grid: unburnt, burning with some steps
+ * left, or burnt out. The burning squares are also kept in a list,
+ * the fire front, so that a sweep of the fire need look only at them.
+ * Burnt-out squares cannot catch fire again until the whole fire has
+ * died out.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class FireLayer
+{
+    // The fire in a square that has burnt out.
+    public static final byte BURNT_OUT = -1;
+
+    // The fire in each square: 0 if unburnt, the steps it has left to
+    // burn if burning, or BURNT_OUT.
+    private byte[] fire;
+    // The burning squares, in the order they caught fire.
+    private int[] front;
+    // The number of squares in front.
+    private int frontSize;
+    // The squares that have burnt out while the fire goes on.
+    private int[] burnt;
+    // The number of squares in burnt.
+    private int burntSize;
+
+    /**
+     * Create a layer with no fire.
+     * @param squares The number of squares in the grid.
+     */
+    public FireLayer(int squares)
+    {
+        fire = new byte[squares];
+        front = new int[16];
+        burnt = new int[16];
+    }
+
+    /**
+     * Set a square alight, unless it is burning or burnt out already.
+     * It starts burning on the next sweep of the fire.
+     * @param index The index of the square.
+     * @param intensity The number of sweeps it is to burn for.
+     * @return true if the square caught fire.
+     */
+    public boolean ignite(int index, int intensity)
+    {
+        if(fire[index] != 0) {
+            return false;
+        }
+        if(frontSize == front.length) {
+            front = Arrays.copyOf(front, frontSize * 2);
+        }
+        fire[index] = (byte) Math.max(1, Math.min(intensity, Byte.MAX_VALUE));
+        front[frontSize++] = index;
+        return true;
+    }
+
+    /**
+     * @param index The index of a square.
+     * @return true if the square is burning.
+     */
+    public boolean isBurning(int index)
+    {
+        return fire[index] > 0;
+    }
+
+    /**
+     * @param index The index of a square.
+     * @return true if the square could catch fire: it is neither
+     *         burning nor burnt out.
+     */
+    public boolean isUnburnt(int index)
+    {
+        return fire[index] == 0;
+    }
+
+    /**
+     * @return The number of burning squares.
+     */
+    public int getFrontSize()
+    {
+        return frontSize;
+    }
+
+    /**
+     * @param i The position in the fire front, from 0 to
+     *        getFrontSize() - 1; squares set alight later come later.
+     * @return The index of a burning square.
+     */
+    public int getFront(int i)
+    {
+        return front[i];
+    }
+
+    /**
+     * Let the first squares of the fire front burn down by one sweep.
+     * Those with no sweeps left, or no fuel left, burn out. Squares
+     * set alight during the sweep stay on the front as they are. Once
+     * no square is burning, the burnt-out squares may catch fire again.
+     * @param burning The number of squares that were swept.
+     * @param fuelled Whether a square has anything left to burn.
+     * @return The number of squares that burnt out.
+     */
+    public int cool(int burning, IntPredicate fuelled)
+    {
+        int kept = 0;
+        for(int i = 0; i < frontSize; i++) {
+            int cell = front[i];
+            if(i >= burning || (--fire[cell] > 0 && fuelled.test(cell))) {
+                front[kept++] = cell;
+            }
+            else {
+                fire[cell] = BURNT_OUT;
+                if(burntSize == burnt.length) {
+                    burnt = Arrays.copyOf(burnt, burntSize * 2);
+                }
+                burnt[burntSize++] = cell;
+            }
+        }
+        int burntOut = frontSize - kept;
+        frontSize = kept;
+        if(frontSize == 0) {
+            for(int i = 0; i < burntSize; i++) {
+                fire[burnt[i]] = 0;
+            }
+            burntSize = 0;
+        }
+        return burntOut;
+    }
+
+    /**
+     * Put out every fire, and let every square burn again.
+     */
+    public void clear()
+    {
+        Arrays.fill(fire, (byte) 0);
+        frontSize = 0;
+        burntSize = 0;
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The distance from each square of a field to the nearest square with
+ * food, counted in moves of a deer, which may go to any of the eight
+ * squares around it. The distances are found for every square at once
+ * by a breadth-first search that starts from all the squares with food
+ * together, so a deer far from food finds the way towards it by
+ * comparing the distances of the squares around it, where a search of
+ * its own would cover the squares between it and the food.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class FlowField
+{
+    // The distance of every square when no square has food.
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // The neighbours of each square.
+    private Neighbourhood neighbourhood;
+    // The distance of each square from the nearest food.
+    private int[] distances;
+    // The squares waiting to be searched from, in order of distance.
+    private int[] queue;
+
+    /**
+     * Create a flow field in which no food has been found yet.
+     * @param neighbourhood The neighbours of the field's squares.
+     * @param squares The number of squares in the field.
+     */
+    public FlowField(Neighbourhood neighbourhood, int squares)
+    {
+        this.neighbourhood = neighbourhood;
+        distances = new int[squares];
+        queue = new int[squares];
+        Arrays.fill(distances, UNREACHABLE);
+    }
+
+    /**
+     * Find the distance of every square from the nearest food.
+     * @param hasFood Whether a square has food.
+     */
+    public void rebuild(IntPredicate hasFood)
+    {
+        int tail = 0;
+        for(int index = 0; index < distances.length; index++) {
+            if(hasFood.test(index)) {
+                distances[index] = 0;
+                queue[tail++] = index;
+            }
+            else {
+                distances[index] = UNREACHABLE;
+            }
+        }
+        for(int head = 0; head < tail; head++) {
+            int index = queue[head];
+            int next = distances[index] + 1;
+            int directions = neighbourhood.directionsAt(index);
+            while(directions != 0) {
+                int other = neighbourhood.neighbour(index, Integer.numberOfTrailingZeros(directions));
+                if(distances[other] == UNREACHABLE) {
+                    distances[other] = next;
+                    queue[tail++] = other;
+                }
+                directions &= directions - 1;
+            }
+        }
+    }
+
+    /**
+     * @param index The index of a square.
+     * @return The number of moves from it to the nearest food, as it
+     *         was when the field was last rebuilt, or UNREACHABLE if
+     *         there was no food.
+     */
+    public int distanceAt(int index)
+    {
+        return distances[index];
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/**
+ * The food around each square of a field, kept up to date as plants
+ * come and go, so that a deer can ask where the food is without
+ * looking at the squares around it.
+ *
+ * For each square the index keeps its number of plants, the most
+ * plants in any of its neighbours and which neighbours have that
+ * many, and the number of plants in the box of squares within some
+ * radius of it (a 3x3 box for radius 1). A plant coming or going
+ * updates its neighbours' bests, usually without looking at any other
+ * square, and the box sums around it. Either question is then
+ * answered without a search, whatever the radius.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class FoodIndex
+{
+    // The depth and width of the field.
+    private int depth, width;
+    // The number of squares on each side of a square in its box.
+    private int radius;
+    // The neighbours of each square.
+    private Neighbourhood neighbourhood;
+    // The number of plants in each square.
+    private byte[] plants;
+    // For each square, the most plants in any of its neighbours.
+    private byte[] most;
+    // For each square, a bit for each direction whose neighbour has
+    // the most plants.
+    private byte[] richest;
+    // For each square, the number of plants in its box.
+    private int[] within;
+
+    /**
+     * Create an index for a field with no plants.
+     * @param neighbourhood The neighbours of the field's squares.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param radius The number of squares on each side of a square
+     *        in its box; at least 1.
+     */
+    public FoodIndex(Neighbourhood neighbourhood, int depth, int width, int radius)
+    {
+        this.neighbourhood = neighbourhood;
+        this.depth = depth;
+        this.width = width;
+        this.radius = Math.max(1, radius);
+        plants = new byte[depth * width];
+        most = new byte[depth * width];
+        richest = new byte[depth * width];
+        within = new int[depth * width];
+        clear();
+    }
+
+    /**
+     * The smallest tiles with which the parallel engine can keep an
+     * index of a given radius up to date: no two tiles acting at once
+     * may change the same box sum, or read one the other changes.
+     * @param radius The radius of the index.
+     * @return The smallest side of a tile.
+     */
+    public static int minTileSize(int radius)
+    {
+        return Math.max(ParallelEngine.MIN_TILE_SIZE, 2 * radius + 2);
+    }
+
+    /**
+     * @return The number of squares on each side of a square in its box.
+     */
+    public int getRadius()
+    {
+        return radius;
+    }
+
+    /**
+     * Record a change in the number of plants in a square.
+     * @param index The index of the square.
+     * @param change The number of plants added, or minus the number
+     *        removed.
+     */
+    public void change(int index, int change)
+    {
+        int count = plants[index] + change;
+        plants[index] = (byte) count;
+        int directions = neighbourhood.directionsAt(index);
+        while(directions != 0) {
+            int dir = Integer.numberOfTrailingZeros(directions);
+            int other = neighbourhood.neighbour(index, dir);
+            int bit = 1 << Neighbourhood.opposite(dir);
+            if(count > most[other]) {
+                most[other] = (byte) count;
+                richest[other] = (byte) bit;
+            }
+            else if(count == most[other]) {
+                richest[other] |= bit;
+            }
+            else if((richest[other] & bit) != 0) {
+                richest[other] &= ~bit;
+                if(richest[other] == 0) {
+                    findRichest(other);
+                }
+            }
+            directions &= directions - 1;
+        }
+        int row = index / width;
+        int col = index - row * width;
+        int left = Math.max(0, col - radius);
+        int right = Math.min(width - 1, col + radius);
+        int bottom = Math.min(depth - 1, row + radius);
+        for(int r = Math.max(0, row - radius); r <= bottom; r++) {
+            for(int at = r * width + left; at <= r * width + right; at++) {
+                within[at] += change;
+            }
+        }
+    }
+
+    /**
+     * Find the best square for a deer to eat at: the square itself,
+     * unless a neighbour has more plants, in which case one of the
+     * neighbours with the most, chosen at random.
+     * @param index The index of the square.
+     * @return The index of the square to eat at.
+     */
+    public int bestAdjacent(int index)
+    {
+        if(plants[index] >= most[index]) {
+            return index;
+        }
+        return neighbourhood.pick(index, richest[index] & 0xFF);
+    }
+
+    /**
+     * @param index The index of a square.
+     * @return The number of plants within the radius of the square,
+     *         counting the square's own.
+     */
+    public int foodWithin(int index)
+    {
+        return within[index];
+    }
+
+    /**
+     * Return to a field with no plants.
+     */
+    public void clear()
+    {
+        Arrays.fill(plants, (byte) 0);
+        Arrays.fill(most, (byte) 0);
+        Arrays.fill(within, 0);
+        for(int index = 0; index < richest.length; index++) {
+            richest[index] = (byte) neighbourhood.directionsAt(index);
+        }
+    }
+
+    /**
+     * Look at the neighbours of a square again to find which have the
+     * most plants, after the last of them has lost some.
+     * @param index The index of the square.
+     */
+    private void findRichest(int index)
+    {
+        int best = 0;
+        int bits = 0;
+        int directions = neighbourhood.directionsAt(index);
+        while(directions != 0) {
+            int dir = Integer.numberOfTrailingZeros(directions);
+            int count = plants[neighbourhood.neighbour(index, dir)];
+            if(count > best) {
+                best = count;
+                bits = 1 << dir;
+            }
+            else if(count == best) {
+                bits |= 1 << dir;
+            }
+            directions &= directions - 1;
+        }
+        most[index] = (byte) best;
+        richest[index] = (byte) bits;
+    }
+}
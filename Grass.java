@@ -1,7 +1,5 @@
 import java.util.List;
-import java.util.Iterator;
-import java.util.Random;
-import java.util.ArrayList;
+import java.util.random.RandomGenerator;
 
 /**
  * A simple model of grass.
@@ -18,14 +16,7 @@ public class Grass extends Plant
     // Characteristics shared by all grasses (class variables).
     
     // How many turns must pass before grass spreads to an adjacent square.
-    private static final int NEW_GRASS = 2;
-    // The likelihood of a grass dying in a fire.
-    private static final double GRASS_FIRE_DEATH_PROBABILITY = 0.75;
-    // A shared random number generator to control direction of spread.
-    private static final Random rand = Randomizer.getRandom();
-    
-    // Individual characteristics (instance fields).
-    private int age;
+    static final int NEW_GRASS = 2;
     
     /**
      * Create grass in one square. 
@@ -37,22 +28,18 @@ public class Grass extends Plant
     {
         super(field, location);
         if(randomAge) {
-            age = rand.nextInt();
+            RandomGenerator rand = Randomizer.getRandom();
+            setAge(rand.nextInt());
         } 
-        else {
-            age = 0;
-        }
     }
     
     /**
-     * Return the grass plant's age. Plants don't die of old age, but age 
-     * determines when plants can reproduce.
-     * @return The age of the grass.
+     * Grass spreads every NEW_GRASS steps.
+     * @return NEW_GRASS.
      */
-    private int incrementAge()
+    protected int getSpreadInterval()
     {
-        age++;
-        return age;
+        return NEW_GRASS;
     }
     
     /**
@@ -65,7 +52,6 @@ public class Grass extends Plant
      */
     public void act(List<Thing> newGrasses)
     {
-        incrementAge();
         if(isViable()) {
             spread(newGrasses); 
         }
@@ -77,35 +63,58 @@ public class Grass extends Plant
      */
     private boolean canSpread()
     {
+        int age = getAge();
         return (age > 0 && age % NEW_GRASS == 0);        
     }
     
     /**
-     * New grass will be made into adjacent locations with enough space.
+     * New grass will be made into an adjacent location with enough
+     * space, chosen at random. If every adjacent location is full,
+     * no grass is made.
      * @param newGrasses A list to return new grass.
      */
     public void spread(List<Thing> newPlants)
     {
-        // New grasses spread into adjacent locations.
-        // Get a list of adjacent locations with space for grass.
         if(canSpread()) {
             Field field = getField();
-            List<Location> locations = field.adjacentLocations(getLocation());
-            //boolean spread = false;
-            int seedlings = 1;
-            for(Location location : locations) {
-               ArrayList<Plant> currantPlants = location.getPlants();
-               while(seedlings == 1) {
-                  if(currantPlants.size() < 10) {
-                     Grass young = new Grass(false, field, location);
-                     newPlants.add(young);
-                     seedlings--;
-                    }
-                }
+            int target = field.pickRoomNear(getLocation());
+            if(target >= 0) {
+                Grass young = new Grass(false, field, field.getLocation(target));
+                newPlants.add(young);
             }
         }
     }
     
+    /**
+     * Plan the grass's step for the intent engine: it may intend to
+     * spread into an adjacent square with room.
+     * @param intents A list to receive the grass's intents.
+     */
+    void plan(List<Intent> intents)
+    {
+        if(isViable() && canSpread()) {
+            int target = getField().pickRoomNear(getLocation());
+            if(target >= 0) {
+                intents.add(new Intent(Intent.Kind.SPAWN, this, target, false, 0));
+            }
+        }
+    }
+    
+    /**
+     * Spread into the intended square, if it still has room.
+     * @param intent The intent, as recorded by plan.
+     * @param won Always true, as spreading claims no square.
+     * @param newGrasses A list to receive new grass.
+     */
+    void carryOut(Intent intent, boolean won, List<Thing> newGrasses)
+    {
+        Field field = getField();
+        if(field.getPlantCount(intent.getTarget()) < Field.MAX_PLANTS) {
+            Grass young = new Grass(false, field, field.getLocation(intent.getTarget()));
+            newGrasses.add(young);
+        }
+    }
+    
     /**
      * @return The number of seeds 
      */
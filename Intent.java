@@ -0,0 +1,119 @@
+/**
+ * Something a thing wants to do to a square of the field, recorded
+ * during the planning phase of the intent engine and carried out
+ * during its resolution phase.
+ * 
+ * Some intents claim their square: moving into it, or putting a new
+ * animal there. Only one claim on a square can succeed in a
+ * step. When several things claim the same square, the intent with
+ * the lowest priority number wins. Priorities come from a hash of
+ * the seed, the step and the thing's position, so they do not
+ * depend on the order in which things made their plans.
+ * 
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class Intent
+{
+    /**
+     * The kinds of thing that can be intended.
+     */
+    public enum Kind
+    {
+        // Move into a square.
+        MOVE,
+        // Move into a square and eat a plant there.
+        EAT,
+        // Produce a new thing in a square.
+        SPAWN,
+        // Die.
+        DIE
+    }
+    
+    // What is intended.
+    private Kind kind;
+    // The thing that intends it.
+    private Thing actor;
+    // The index of the square it is intended for.
+    private int target;
+    // Whether the intent claims the square.
+    private boolean claim;
+    // A value whose meaning depends on the actor and kind.
+    private int value;
+    // The order in which the intent is carried out; lowest first.
+    private long priority;
+
+    /**
+     * Record an intent.
+     * @param kind What is intended.
+     * @param actor The thing that intends it.
+     * @param target The index of the square it is intended for.
+     * @param claim Whether the intent claims the square.
+     * @param value A value whose meaning depends on the actor and kind.
+     */
+    public Intent(Kind kind, Thing actor, int target, boolean claim, int value)
+    {
+        this.kind = kind;
+        this.actor = actor;
+        this.target = target;
+        this.claim = claim;
+        this.value = value;
+    }
+    
+    /**
+     * @return What is intended.
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+    
+    /**
+     * @return The thing that intends it.
+     */
+    public Thing getActor()
+    {
+        return actor;
+    }
+    
+    /**
+     * @return The index of the square it is intended for.
+     */
+    public int getTarget()
+    {
+        return target;
+    }
+    
+    /**
+     * @return Whether the intent claims its square.
+     */
+    public boolean isClaim()
+    {
+        return claim;
+    }
+    
+    /**
+     * @return A value whose meaning depends on the actor and kind.
+     */
+    public int getValue()
+    {
+        return value;
+    }
+    
+    /**
+     * @return The order in which the intent is carried out; lowest first.
+     */
+    public long getPriority()
+    {
+        return priority;
+    }
+    
+    /**
+     * Set the order in which the intent is carried out.
+     * @param priority The priority; lowest first.
+     */
+    public void setPriority(long priority)
+    {
+        this.priority = priority;
+    }
+}
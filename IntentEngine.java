@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Run each step in two phases. In the planning phase every thing 
+ * records what it intends to do, without changing the field, so the
+ * things can plan in parallel, each thread into its own buffer. In
+ * the resolution phase the intents are carried out one square at a
+ * time. Where several things claim the same square, or compete for
+ * the plants in it, the intent with the lowest priority goes first.
+ * 
+ * Each thing plans with counter-based random draws, and each intent
+ * gets a priority, made from the seed, the step and the thing's
+ * position in the field (its square, and its slot there).
+ * So the results do not depend on the order of the list of things
+ * or on the number of threads.
+ * 
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class IntentEngine implements StepEngine
+{
+    // The number of things planned by each task.
+    private static final int BATCH_SIZE = 1024;
+    // The most intents a thing may record in one step.
+    private static final int MAX_INTENTS = 15;
+    // The order in which intents are carried out.
+    private static final Comparator<Intent> ORDER =
+        Comparator.comparingInt(Intent::getTarget).thenComparingLong(Intent::getPriority);
+    
+    // The field the things live in.
+    private Field field;
+    // The worker threads.
+    private ForkJoinPool pool;
+    // The intents recorded by each batch of things.
+    private List<List<Intent>> buffers;
+    // The intents of every thing, in the order they are carried out;
+    // kept from step to step.
+    private List<Intent> intents;
+    // The squares claimed so far in the resolution phase.
+    private BitSet claimed;
+    // The seed of the simulation the streams and priorities are derived from.
+    private long seed;
+
+    /**
+     * Create an engine for the given field.
+     * @param field The field the things live in.
+     * @param threads The number of threads to plan on.
+     * @param seed The seed of the simulation.
+     */
+    public IntentEngine(Field field, int threads, long seed)
+    {
+        this.field = field;
+        this.seed = seed;
+        pool = new ForkJoinPool(threads);
+        buffers = new ArrayList<>();
+        intents = new ArrayList<>();
+        claimed = new BitSet(field.getDepth() * field.getWidth());
+    }
+    
+    /**
+     * Let every viable thing plan, then carry out the plans.
+     * @param step The number of the step being run.
+     * @param things The things in the field.
+     */
+    public void step(int step, ThingStore things)
+    {
+        int batches = (things.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        while(buffers.size() < batches) {
+            buffers.add(new ArrayList<>());
+        }
+        if(batches > 0) {
+            pool.invoke(new PlanTask(step, things, 0, batches));
+        }
+        
+        intents.clear();
+        for(int batch = 0; batch < batches; batch++) {
+            intents.addAll(buffers.get(batch));
+            buffers.get(batch).clear();
+        }
+        intents.sort(ORDER);
+        
+        List<Thing> newThings = things.getBirths();
+        claimed.clear();
+        for(Intent intent : intents) {
+            Thing actor = intent.getActor();
+            if(actor.isViable()) {
+                boolean won = true;
+                if(intent.isClaim()) {
+                    won = !claimed.get(intent.getTarget());
+                    claimed.set(intent.getTarget());
+                }
+                actor.carryOut(intent, won, newThings);
+            }
+        }
+        
+        things.removeDead();
+        things.appendBirths();
+    }
+    
+    /**
+     * Stop the worker threads. The engine cannot be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+    
+    /**
+     * Let one batch of things plan.
+     * @param step The number of the step being run.
+     * @param things The things in the field.
+     * @param batch The batch to plan.
+     */
+    private void planBatch(int step, List<Thing> things, int batch)
+    {
+        List<Intent> intents = buffers.get(batch);
+        int end = Math.min(things.size(), (batch + 1) * BATCH_SIZE);
+        try {
+            for(int i = batch * BATCH_SIZE; i < end; i++) {
+                Thing thing = things.get(i);
+                if(thing.isViable()) {
+                    int cell = field.indexOf(thing.getLocation());
+                    int slot = thing.getSlot();
+                    long key = (long) cell * (Thing.OCCUPANT_SLOT + 1) + slot;
+                    Randomizer.bindCounter(seed, step, cell, slot);
+                    int first = intents.size();
+                    thing.plan(intents);
+                    for(int n = first; n < intents.size(); n++) {
+                        long part = key * (MAX_INTENTS + 1) + (n - first);
+                        intents.get(n).setPriority(Randomizer.hash(seed, step, part));
+                    }
+                }
+            }
+        }
+        finally {
+            Randomizer.unbind();
+        }
+    }
+    
+    /**
+     * Plan a range of batches, splitting the range between the
+     * worker threads.
+     */
+    private class PlanTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private int step;
+        private List<Thing> things;
+        private int from, to;
+        
+        /**
+         * Plan batches from to to - 1.
+         */
+        public PlanTask(int step, List<Thing> things, int from, int to)
+        {
+            this.step = step;
+            this.things = things;
+            this.from = from;
+            this.to = to;
+        }
+        
+        /**
+         * Plan one batch, or split the range in two.
+         */
+        protected void compute()
+        {
+            if(to - from == 1) {
+                planBatch(step, things, from);
+            }
+            else {
+                int middle = (from + to) / 2;
+                invokeAll(new PlanTask(step, things, from, middle),
+                          new PlanTask(step, things, middle, to));
+            }
+        }
+    }
+}
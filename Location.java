@@ -1,7 +1,14 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Represent a location in a rectangular grid.
+ * Each location of a field is represented by a single Location object
+ * owned by the field, so the plants growing there are shared by
+ * everything that looks at the square. A field with ARRAYS storage
+ * keeps its plants itself, and its locations hold none; ask the field
+ * for the plants in a square.
  * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
@@ -11,7 +18,10 @@ public class Location
     // Row and column positions.
     private int row;
     private int col;
+    // The plants in this square. Only created once a plant arrives.
     private ArrayList<Plant> plantsInSquare;
+    // A bit for each slot taken by a plant in this square.
+    private int takenSlots;
     
 
     /**
@@ -23,7 +33,6 @@ public class Location
     {
         this.row = row;
         this.col = col;
-        plantsInSquare = new ArrayList<>();
     }
     
     /**
@@ -77,48 +86,109 @@ public class Location
     }
     
     /**
-     * @return The ArrayList of all the plants in the location.
+     * @return The plants in the location. The list must not be 
+     *         modified; use Field.addPlant and Field.removePlant.
      */
-    public ArrayList<Plant> getPlants()
+    public List<Plant> getPlants()
     {
+        if(plantsInSquare == null) {
+            return Collections.emptyList();
+        }
         return plantsInSquare;
     }
     
+    /**
+     * @return The number of plants in the location.
+     */
+    public int getPlantCount()
+    {
+        if(plantsInSquare == null) {
+            return 0;
+        }
+        return plantsInSquare.size();
+    }
     
     /**
      * Find the main plant in a location. Trees overshadow grass.
      * Used to determine the color of the square.
      * 
-     * @return The class of the dominant plant
+     * @return The class of the dominant plant, or null if there are none.
      */
-    public Class mainPlant()
+    public Class<?> mainPlant()
     {
-       
-       for(Plant plant : plantsInSquare) {
-          if(plant instanceof Tree) {
-              return getClass();
-          }else if(plant instanceof Grass) {
-              return getClass();
-          }
-       } 
-       return null; 
+        Class<?> main = null;
+        for(Plant plant : getPlants()) {
+            if(plant instanceof Tree) {
+                return Tree.class;
+            }
+            else if(plant instanceof Grass) {
+                main = Grass.class;
+            }
+        } 
+        return main; 
     }
     
     /**
-     * Add plant to ArrayList at location.
+     * Add plant to ArrayList at location, giving it the lowest slot
+     * no other plant here holds. The plant keeps that slot for as
+     * long as it grows here, whatever comes and goes around it.
      */
     public void addPlant(Plant plant)
     {
+        if(plantsInSquare == null) {
+            plantsInSquare = new ArrayList<>(Field.MAX_PLANTS);
+        }
+        int slot = Integer.numberOfTrailingZeros(~takenSlots);
+        takenSlots |= 1 << slot;
+        plant.setSlot(slot);
         plantsInSquare.add(plant);
     }
     
+    /**
+     * Remove a plant from the location, freeing its slot.
+     * @return true if the plant was growing here.
+     */
+    public boolean removePlant(Plant plant)
+    {
+        if(plantsInSquare == null || !plantsInSquare.remove(plant)) {
+            return false;
+        }
+        takenSlots &= ~(1 << plant.getSlot());
+        return true;
+    }
+    
+    /**
+     * Remove all plants from the location.
+     */
+    public void clearPlants()
+    {
+        if(plantsInSquare != null) {
+            plantsInSquare.clear();
+        }
+        takenSlots = 0;
+    }
+    
+    /**
+     * @return The first grass plant in the location, or null if there
+     *         is none.
+     */
+    public Grass findGrass()
+    {
+        for(Plant plant : getPlants()) {
+            if(plant instanceof Grass) {
+                return (Grass) plant;
+            }
+        }
+        return null;
+    }
+    
     /**
      * @return The class of the plant
      * in the first index of the ArrayList.
      */
     private Class getFirstPlant(Location location)
     {
-        ArrayList<Plant> plantsInSquare = location.getPlants();
+        List<Plant> plantsInSquare = location.getPlants();
         if(plantsInSquare.size() > 0) {
            Class plantClass = plantsInSquare.get(0).getClass();
            return plantClass;
@@ -133,16 +203,9 @@ public class Location
      */
     public void replaceGrass()
     {
-        int index = 0;
-        boolean searching = true;
-        while(index < plantsInSquare.size() && searching) {
-            for(Plant plant : plantsInSquare) {
-                if(plant instanceof Grass) {
-                    plantsInSquare.remove(plant);
-                    searching = false;
-                }
-            }
-            index++;
+        Grass grass = findGrass();
+        if(grass != null) {
+            removePlant(grass);
         }
     }
 }
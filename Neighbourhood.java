@@ -0,0 +1,238 @@
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The neighbours of the squares of a rectangular grid, listed in a
+ * random order. A field uses one to find the squares around each
+ * thing; anything else laid out on a grid of the same shape can use
+ * one to visit neighbours in the same way.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class Neighbourhood
+{
+    // The row and column offsets of the neighbouring squares.
+    private static final int[] ROW_OFFSETS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+    private static final int[] COL_OFFSETS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    // Bits describing which edges of the grid a square lies on.
+    private static final int TOP = 1, BOTTOM = 2, LEFT = 4, RIGHT = 8;
+    // For each combination of edge bits, the neighbour directions
+    // that lie within the grid.
+    private static final byte[][] EDGE_DIRECTIONS = new byte[16][];
+    // For each combination of edge bits, a bit for each neighbour
+    // direction that lies within the grid.
+    private static final int[] EDGE_MASKS = new int[16];
+    // For each number of neighbours n, every ordering of n items,
+    // stored one after another, n entries per ordering.
+    private static final byte[][] ORDERINGS = new byte[Field.MAX_NEIGHBOURS + 1][];
+    // For each number of neighbours n, the number of orderings (n!).
+    private static final int[] ORDERING_COUNTS = new int[Field.MAX_NEIGHBOURS + 1];
+
+    static {
+        for(int edges = 0; edges < EDGE_DIRECTIONS.length; edges++) {
+            byte[] directions = new byte[Field.MAX_NEIGHBOURS];
+            int count = 0;
+            for(int dir = 0; dir < Field.MAX_NEIGHBOURS; dir++) {
+                boolean outside = (ROW_OFFSETS[dir] < 0 && (edges & TOP) != 0) ||
+                                  (ROW_OFFSETS[dir] > 0 && (edges & BOTTOM) != 0) ||
+                                  (COL_OFFSETS[dir] < 0 && (edges & LEFT) != 0) ||
+                                  (COL_OFFSETS[dir] > 0 && (edges & RIGHT) != 0);
+                if(!outside) {
+                    directions[count] = (byte) dir;
+                    count++;
+                    EDGE_MASKS[edges] |= 1 << dir;
+                }
+            }
+            EDGE_DIRECTIONS[edges] = Arrays.copyOf(directions, count);
+        }
+        int orderings = 1;
+        for(int n = 0; n <= Field.MAX_NEIGHBOURS; n++) {
+            if(n > 0) {
+                orderings *= n;
+            }
+            ORDERING_COUNTS[n] = orderings;
+            ORDERINGS[n] = makeOrderings(n, orderings);
+        }
+    }
+
+    // The depth and width of the grid.
+    private int depth, width;
+    // The difference in index between a square and each of its neighbours.
+    private int[] indexOffsets;
+
+    /**
+     * Describe the neighbours in a grid of the given dimensions.
+     * @param depth The depth of the grid.
+     * @param width The width of the grid.
+     */
+    public Neighbourhood(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        indexOffsets = new int[Field.MAX_NEIGHBOURS];
+        for(int dir = 0; dir < Field.MAX_NEIGHBOURS; dir++) {
+            indexOffsets[dir] = ROW_OFFSETS[dir] * width + COL_OFFSETS[dir];
+        }
+    }
+
+    /**
+     * Write the indices of the squares adjacent to the given square
+     * into a buffer, in a random order.
+     * @param index The index of the square, row * width + column.
+     * @param buffer Receives the indices; must hold Field.MAX_NEIGHBOURS.
+     * @return The number of neighbours written.
+     */
+    public int neighbours(int index, int[] buffer)
+    {
+        int row = index / width;
+        return neighbours(index, row, index - row * width, buffer);
+    }
+
+    /**
+     * Write the indices of the neighbours of a square into a buffer,
+     * in one of the possible orders chosen at random. Every order is
+     * listed in a table made when the class is loaded, so choosing
+     * one takes a single random draw.
+     * @param index The index of the square.
+     * @param row The row of the square.
+     * @param col The column of the square.
+     * @param buffer Receives the indices; must hold Field.MAX_NEIGHBOURS.
+     * @return The number of neighbours written.
+     */
+    public int neighbours(int index, int row, int col, int[] buffer)
+    {
+        byte[] directions = EDGE_DIRECTIONS[edgesOf(row, col)];
+        int count = directions.length;
+        if(count > 1) {
+            byte[] orderings = ORDERINGS[count];
+            RandomGenerator rand = Randomizer.getRandom();
+            int start = rand.nextInt(ORDERING_COUNTS[count]) * count;
+            for(int i = 0; i < count; i++) {
+                buffer[i] = index + indexOffsets[directions[orderings[start + i]]];
+            }
+        }
+        else if(count == 1) {
+            buffer[0] = index + indexOffsets[directions[0]];
+        }
+        return count;
+    }
+
+    /**
+     * @param index The index of a square.
+     * @return A bit for each direction whose neighbour lies within
+     *         the grid, bit d for direction d.
+     */
+    public int directionsAt(int index)
+    {
+        int row = index / width;
+        return EDGE_MASKS[edgesOf(row, index - row * width)];
+    }
+
+    /**
+     * @param index The index of a square.
+     * @param dir A direction whose neighbour lies within the grid.
+     * @return The index of the neighbour in that direction.
+     */
+    public int neighbour(int index, int dir)
+    {
+        return index + indexOffsets[dir];
+    }
+
+    /**
+     * @param dir A direction.
+     * @return The direction pointing back the other way.
+     */
+    public static int opposite(int dir)
+    {
+        // The offset tables are symmetric about their middle.
+        return Field.MAX_NEIGHBOURS - 1 - dir;
+    }
+
+    /**
+     * Choose one of some of the neighbours of a square at random,
+     * each as likely as the others. As with neighbours, a single
+     * random draw is taken if there is more than one to choose from.
+     * @param index The index of the square.
+     * @param directions A bit for each direction that may be chosen;
+     *        each must lie within the grid.
+     * @return The index of the chosen neighbour, or -1 if there were
+     *         none to choose from.
+     */
+    public int pick(int index, int directions)
+    {
+        int count = Integer.bitCount(directions);
+        if(count == 0) {
+            return -1;
+        }
+        if(count > 1) {
+            RandomGenerator rand = Randomizer.getRandom();
+            for(int skip = rand.nextInt(count); skip > 0; skip--) {
+                directions &= directions - 1;
+            }
+        }
+        return index + indexOffsets[Integer.numberOfTrailingZeros(directions)];
+    }
+
+    /**
+     * @param row The row of a square.
+     * @param col The column of a square.
+     * @return The bits describing which edges of the grid it lies on.
+     */
+    private int edgesOf(int row, int col)
+    {
+        int edges = 0;
+        if(row == 0) {
+            edges |= TOP;
+        }
+        if(row == depth - 1) {
+            edges |= BOTTOM;
+        }
+        if(col == 0) {
+            edges |= LEFT;
+        }
+        if(col == width - 1) {
+            edges |= RIGHT;
+        }
+        return edges;
+    }
+
+    /**
+     * List every ordering of the numbers 0 to n-1, in lexicographic
+     * order.
+     * @param n The number of items to order.
+     * @param orderings The number of orderings, n!.
+     * @return The orderings, one after another, n entries each.
+     */
+    private static byte[] makeOrderings(int n, int orderings)
+    {
+        byte[] table = new byte[n * orderings];
+        byte[] ordering = new byte[n];
+        for(int i = 0; i < n; i++) {
+            ordering[i] = (byte) i;
+        }
+        for(int k = 0; k < orderings; k++) {
+            System.arraycopy(ordering, 0, table, k * n, n);
+            // Step to the next ordering.
+            int i = n - 2;
+            while(i >= 0 && ordering[i] > ordering[i + 1]) {
+                i--;
+            }
+            if(i >= 0) {
+                int j = n - 1;
+                while(ordering[j] < ordering[i]) {
+                    j--;
+                }
+                byte swap = ordering[i];
+                ordering[i] = ordering[j];
+                ordering[j] = swap;
+                for(int lo = i + 1, hi = n - 1; lo < hi; lo++, hi--) {
+                    swap = ordering[lo];
+                    ordering[lo] = ordering[hi];
+                    ordering[hi] = swap;
+                }
+            }
+        }
+        return table;
+    }
+}
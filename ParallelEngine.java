@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Let the things in a field act in parallel, one tile of the field
+ * at a time.
+ * 
+ * The field is cut into square tiles, and the tiles are coloured
+ * like a 2x2 checkerboard. The four colours take turns; the tiles
+ * of one colour act at the same time on a pool of worker threads.
+ * A thing never changes a square more than two from where it started
+ * the step: a deer moves to a neighbouring square and its young are
+ * born next to it, a plant spreads next to it, and a thing arriving in
+ * a square updates what the field's indexes record for that square's
+ * neighbours. Two tiles of the same colour have a tile between them,
+ * so as long as tiles are at least four squares across, each can reach
+ * only its own half of that gap, and they never touch the same square.
+ * 
+ * Within a tile, things act in the order they appear in the list
+ * of things, and each tile draws its random numbers from its own
+ * stream, made from the seed, the step and the tile. Newly born
+ * things are collected per tile and added in tile order. So a run 
+ * gives the same results whatever the number of threads.
+ * 
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class ParallelEngine implements StepEngine
+{
+    // The smallest side of a tile that keeps tiles of one colour apart.
+    public static final int MIN_TILE_SIZE = 4;
+    
+    // The field the things live in.
+    private Field field;
+    // The side of each tile, in squares.
+    private int tileSize;
+    // The number of tiles across and down the field.
+    private int tileCols, tileRows;
+    // The worker threads.
+    private ForkJoinPool pool;
+    // The things in each tile at the start of the step.
+    private List<List<Thing>> tileThings;
+    // The things born in each tile during the step.
+    private List<List<Thing>> tileBirths;
+    // The tiles of each of the four colours.
+    private int[][] tilesByColour;
+    // The seed of the simulation the tiles' streams are derived from.
+    private long seed;
+
+    /**
+     * Create an engine for the given field.
+     * @param field The field the things live in.
+     * @param tileSize The side of each tile; at least MIN_TILE_SIZE.
+     * @param threads The number of worker threads.
+     * @param seed The seed of the simulation.
+     */
+    public ParallelEngine(Field field, int tileSize, int threads, long seed)
+    {
+        this.field = field;
+        this.seed = seed;
+        this.tileSize = tileSize;
+        tileCols = (field.getWidth() + tileSize - 1) / tileSize;
+        tileRows = (field.getDepth() + tileSize - 1) / tileSize;
+        pool = new ForkJoinPool(threads);
+        tileThings = new ArrayList<>();
+        tileBirths = new ArrayList<>();
+        for(int tile = 0; tile < tileRows * tileCols; tile++) {
+            tileThings.add(new ArrayList<>());
+            tileBirths.add(new ArrayList<>());
+        }
+        
+        int[] coloured = new int[4];
+        tilesByColour = new int[4][];
+        for(int pass = 0; pass < 2; pass++) {
+            for(int tile = 0; tile < tileRows * tileCols; tile++) {
+                int colour = colourOf(tile);
+                if(pass == 1) {
+                    tilesByColour[colour][coloured[colour]] = tile;
+                }
+                coloured[colour]++;
+            }
+            if(pass == 0) {
+                for(int colour = 0; colour < 4; colour++) {
+                    tilesByColour[colour] = new int[coloured[colour]];
+                    coloured[colour] = 0;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Let every viable thing act once. Afterwards, things that are
+     * no longer viable are removed from the store, and newly born 
+     * things are added to the end of it.
+     * @param step The number of the step being run.
+     * @param things The things in the field.
+     */
+    public void step(int step, ThingStore things)
+    {
+        for(int tile = 0; tile < tileThings.size(); tile++) {
+            tileThings.get(tile).clear();
+            tileBirths.get(tile).clear();
+        }
+        for(Thing thing : things) {
+            if(thing.isViable()) {
+                tileThings.get(tileOf(thing.getLocation())).add(thing);
+            }
+        }
+        
+        for(int[] tiles : tilesByColour) {
+            if(tiles.length > 0) {
+                pool.invoke(new TileTask(step, tiles, 0, tiles.length));
+            }
+        }
+        
+        things.removeDead();
+        for(List<Thing> births : tileBirths) {
+            things.addAll(births);
+        }
+    }
+    
+    /**
+     * @return The side of each tile, in squares.
+     */
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+    
+    /**
+     * Stop the worker threads. The engine cannot be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+    
+    /**
+     * Let the things in one tile act.
+     * @param step The number of the step being run.
+     * @param tile The tile.
+     */
+    private void runTile(int step, int tile)
+    {
+        List<Thing> births = tileBirths.get(tile);
+        Randomizer.bind(Randomizer.getRandom(seed, step, tile));
+        try {
+            for(Thing thing : tileThings.get(tile)) {
+                if(thing.isViable()) {
+                    thing.act(births);
+                }
+            }
+        }
+        finally {
+            Randomizer.unbind();
+        }
+    }
+    
+    /**
+     * @return The tile containing the given location.
+     */
+    private int tileOf(Location location)
+    {
+        return (location.getRow() / tileSize) * tileCols + location.getCol() / tileSize;
+    }
+    
+    /**
+     * @return The colour of a tile, from 0 to 3.
+     */
+    private int colourOf(int tile)
+    {
+        int tileRow = tile / tileCols;
+        int tileCol = tile % tileCols;
+        return (tileRow % 2) * 2 + tileCol % 2;
+    }
+    
+    /**
+     * Run a range of tiles of one colour, splitting the range between
+     * the worker threads.
+     */
+    private class TileTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private int step;
+        private int[] tiles;
+        private int from, to;
+        
+        /**
+         * Run tiles[from] to tiles[to - 1].
+         */
+        public TileTask(int step, int[] tiles, int from, int to)
+        {
+            this.step = step;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+        
+        /**
+         * Run one tile, or split the range in two.
+         */
+        protected void compute()
+        {
+            if(to - from == 1) {
+                runTile(step, tiles[from]);
+            }
+            else {
+                int middle = (from + to) / 2;
+                invokeAll(new TileTask(step, tiles, from, middle),
+                          new TileTask(step, tiles, middle, to));
+            }
+        }
+    }
+}
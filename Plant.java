@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * A class representing shared characteristics of plants.
@@ -20,10 +19,17 @@ public abstract class Plant extends Organism
     //The max number of plants that can be on any particular square
     private static final int MAX_PLANTS = 10;
     
-    
+    // The step in which the plant was born.
+    private int birthStep;
+    // Which of the plants in its square this is.
+    private int slot;
+    // The next plant in its square, in a field that links the plants
+    // of each square together rather than listing them.
+    private Plant nextInSquare;
    
     /**
-     * Create a new plant at location in field.
+     * Create a new plant at location in field, born in the field's
+     * current step.
      * 
      * @param field The field currently occupied.
      * @param location The location within the field.
@@ -31,6 +37,46 @@ public abstract class Plant extends Organism
     public Plant(Field field, Location location)
     {
         super(field, location);
+        birthStep = field.getStep();
+    }
+    
+    /**
+     * Return the plant's age: the number of steps since the step it
+     * was born in. The age is worked out from the field's step, so
+     * the plant need not act to grow older.
+     * @return The age of the plant.
+     */
+    protected int getAge()
+    {
+        return getField().getStep() - birthStep;
+    }
+    
+    /**
+     * Set the plant's age, as though it had been born that many
+     * steps ago.
+     * @param age The age of the plant.
+     */
+    protected void setAge(int age)
+    {
+        birthStep = getField().getStep() - age;
+    }
+    
+    /**
+     * Return the number of steps between the plant's spreading.
+     * @return The plant spreads when its age is a multiple of this.
+     */
+    abstract protected int getSpreadInterval();
+    
+    /**
+     * A plant only needs to act when its age is a multiple of its
+     * spread interval.
+     * @param step The step just run.
+     * @return The next step on which its age is such a multiple.
+     */
+    protected int nextWake(int step)
+    {
+        int interval = getSpreadInterval();
+        return step + interval - Math.floorMod(step - birthStep, interval);
     }
     
            
@@ -48,17 +94,70 @@ public abstract class Plant extends Organism
      */
     protected void setDead()
     {
-        boolean viable = isViable();
-        viable = false;
+        setNotViable();
         Location loc = getLocation();
-        ArrayList<Plant> plants = loc.getPlants();
-        for(Plant plant : plants) {
-            if(!isViable()) {
-                plants.remove(plant);
-            }
+        if(loc != null) {
+            leave(loc);
         }
     }
+    
+    /**
+     * Plants do not occupy a location outright; they join the 
+     * plants growing there.
+     * @param location The location where the plant grows.
+     */
+    protected void enter(Location location)
+    {
+        getField().addPlant(this, location);
+    }
+    
+    /**
+     * Remove the plant from the plants growing at the location.
+     * @param location The location where the plant grew.
+     */
+    protected void leave(Location location)
+    {
+        getField().removePlant(this, location);
+    }
         
+    /**
+     * Return which of the plants in its square this is. The slot is
+     * given when the plant is placed and kept after it dies, so it
+     * does not depend on which other plants have come or gone.
+     * @return The plant's slot, below Field.MAX_PLANTS.
+     */
+    protected int getSlot()
+    {
+        return slot;
+    }
+    
+    /**
+     * Give the plant its slot in its square.
+     * @param slot A slot no other plant in the square holds.
+     */
+    protected void setSlot(int slot)
+    {
+        this.slot = slot;
+    }
+    
+    /**
+     * @return The next plant in the plant's square, in a field that
+     *         links the plants of each square together, or null.
+     */
+    protected Plant getNextInSquare()
+    {
+        return nextInSquare;
+    }
+    
+    /**
+     * Link the plant to the next plant in its square.
+     * @param next The next plant, or null if this is the last.
+     */
+    protected void setNextInSquare(Plant next)
+    {
+        nextInSquare = next;
+    }
+    
     /**
      * The plant will spread after a certain number of turns.
      * It will spread to the first adjacent square with available space.
@@ -0,0 +1,479 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The plants of a field held not as individuals but as a count of
+ * each species in each square: the grass count and the tree count of
+ * a square are packed into one byte. A square costs two bytes, so a
+ * field full of plants needs around a hundredth of the memory that
+ * plant objects would.
+ *
+ * Spreading, eating and burning become arithmetic on the counts, with
+ * the chances of the Grass, Tree and Fire rules. Plants no longer have
+ * ages, but none are needed: every plant of a species is born on a
+ * step that is a multiple of its spread interval, so all of them
+ * spread together on those steps, as they would as individuals. Which
+ * plant of a square is eaten or crowded out no longer matters, only
+ * how many are left.
+ *
+ * Grass may spread by way of bitboards: a bit per square, packed 64 to
+ * a word along each row, for whether the square has room and whether
+ * it has grass due to spread. A few shifts and ORs per word find the
+ * squares with grass next to room, and only those are visited one at a
+ * time; in a crowded field most squares are skipped 64 at a time. As
+ * squares only fill up while grass spreads, a skipped square could not
+ * have spread anyway, so each square's grass has the same chances as
+ * without bitboards. Skipped squares draw no random order for their
+ * neighbours, though, so the squares after them see different numbers
+ * and a run takes a different course; only its odds are the same.
+ * The bitboards may be filled eight squares at a time, treating a
+ * long as eight lanes of one byte each.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class PlantDensity
+{
+    // The number of low bits of a square's byte that hold its grass
+    // count; the high bits hold its tree count.
+    private static final int GRASS_BITS = 4;
+    // The bits holding the grass count.
+    private static final int GRASS_MASK = (1 << GRASS_BITS) - 1;
+    // The amount a square's byte grows by with each tree.
+    private static final int ONE_TREE = 1 << GRASS_BITS;
+    // A 1 in each byte of a long.
+    private static final long EACH_BYTE = 0x0101010101010101L;
+    // The grass bits of each byte of a long.
+    private static final long EACH_GRASS = EACH_BYTE * GRASS_MASK;
+    // The top bit of each byte of a long.
+    private static final long EACH_TOP_BIT = EACH_BYTE * 0x80;
+    // Multiplying by this moves the low bit of byte i of a long to bit
+    // 56 + i, with no carries.
+    private static final long GATHER = 0x0102040810204080L;
+    // Reads eight bytes of an array as a long, the first byte lowest.
+    private static final VarHandle EIGHT_BYTES =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // The packed counts of each square.
+    private byte[] counts;
+    // The counts as they were at the start of the current spread.
+    private byte[] before;
+    // The neighbours of each square, in random orders.
+    private Neighbourhood neighbourhood;
+    // A buffer for neighbour lookups.
+    private int[] adjacent;
+    // The number of grass plants in the field.
+    private int grassCount;
+    // The number of trees in the field.
+    private int treeCount;
+    // The width of the field.
+    private int width;
+    // The number of words in each row of a bitboard.
+    private int words;
+    // Whether grass spreads by way of bitboards.
+    private boolean bitboards;
+    // Whether the bitboards are filled eight squares at a time.
+    private boolean wide;
+    // One bit per square, set if it has room for another plant; null
+    // until bitboards are first used.
+    private long[] room;
+    // One bit per square, set if it has grass due to spread.
+    private long[] spreading;
+
+    /**
+     * Create a field with no plants.
+     * @param neighbourhood The neighbours of the field's squares.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public PlantDensity(Neighbourhood neighbourhood, int depth, int width)
+    {
+        this.neighbourhood = neighbourhood;
+        this.width = width;
+        counts = new byte[depth * width];
+        before = new byte[depth * width];
+        adjacent = new int[Field.MAX_NEIGHBOURS];
+        words = (width + 63) / 64;
+    }
+
+    /**
+     * Choose whether grass spreads by way of bitboards.
+     * @param on true to use bitboards.
+     */
+    public void useBitboards(boolean on)
+    {
+        if(on && room == null) {
+            int depth = counts.length / width;
+            room = new long[depth * words];
+            spreading = new long[depth * words];
+        }
+        bitboards = on;
+    }
+
+    /**
+     * Choose whether the bitboards are filled eight squares at a time,
+     * with the counts of eight squares read as one long, or a square
+     * at a time. The bitboards come out the same either way.
+     * @param on true to fill them eight squares at a time.
+     */
+    public void useWideKernels(boolean on)
+    {
+        wide = on;
+    }
+
+    /**
+     * @param cell The index of a square.
+     * @return The number of grass plants there.
+     */
+    public int getGrass(int cell)
+    {
+        return counts[cell] & GRASS_MASK;
+    }
+
+    /**
+     * @param cell The index of a square.
+     * @return The number of trees there.
+     */
+    public int getTrees(int cell)
+    {
+        return (counts[cell] & 0xFF) >>> GRASS_BITS;
+    }
+
+    /**
+     * @param cell The index of a square.
+     * @return The number of plants there.
+     */
+    public int getPlants(int cell)
+    {
+        int packed = counts[cell] & 0xFF;
+        return (packed & GRASS_MASK) + (packed >>> GRASS_BITS);
+    }
+
+    /**
+     * @return The number of grass plants in the field.
+     */
+    public int getGrassCount()
+    {
+        return grassCount;
+    }
+
+    /**
+     * @return The number of trees in the field.
+     */
+    public int getTreeCount()
+    {
+        return treeCount;
+    }
+
+    /**
+     * Add a grass plant to a square with room for it.
+     * @param cell The index of the square.
+     */
+    public void addGrass(int cell)
+    {
+        counts[cell]++;
+        grassCount++;
+    }
+
+    /**
+     * Add a tree to a square with room for it.
+     * @param cell The index of the square.
+     */
+    public void addTree(int cell)
+    {
+        counts[cell] += ONE_TREE;
+        treeCount++;
+    }
+
+    /**
+     * Let a deer eat in a square with plants: a grass plant if there
+     * is one, otherwise a tree.
+     * @param cell The index of the square.
+     */
+    public void eat(int cell)
+    {
+        if(getGrass(cell) > 0) {
+            counts[cell]--;
+            grassCount--;
+        }
+        else {
+            counts[cell] -= ONE_TREE;
+            treeCount--;
+        }
+    }
+
+    /**
+     * Give each plant in a burning square its chance of dying.
+     * @param cell The burning square.
+     * @param rand The random generator.
+     */
+    public void burn(int cell, RandomGenerator rand)
+    {
+        int grass = getGrass(cell);
+        int trees = getTrees(cell);
+        int grassDeaths = deaths(grass, Fire.deathProbability(Species.GRASS), rand);
+        int treeDeaths = deaths(trees, Fire.deathProbability(Species.TREE), rand);
+        counts[cell] = (byte) ((grass - grassDeaths) + ((trees - treeDeaths) << GRASS_BITS));
+        grassCount -= grassDeaths;
+        treeCount -= treeDeaths;
+    }
+
+    /**
+     * Let the plants due to spread on this step do so: each tree into
+     * the first neighbouring square with room or, if all are full, in
+     * place of a grass plant in the first that has some; then each
+     * grass plant into the first neighbouring square with room. Plants
+     * born during the step do not spread until their next turn.
+     * @param step The current step.
+     */
+    public void spread(int step)
+    {
+        boolean treesDue = step % Tree.NEW_TREE == 0;
+        boolean grassDue = step % Grass.NEW_GRASS == 0;
+        if(!treesDue && !grassDue) {
+            return;
+        }
+        System.arraycopy(counts, 0, before, 0, counts.length);
+        if(treesDue) {
+            for(int cell = 0; cell < counts.length; cell++) {
+                int trees = (before[cell] & 0xFF) >>> GRASS_BITS;
+                for(int n = 0; n < trees; n++) {
+                    spreadTree(cell);
+                }
+            }
+        }
+        if(grassDue && bitboards) {
+            spreadGrassByBitboards();
+        }
+        else if(grassDue) {
+            for(int cell = 0; cell < counts.length; cell++) {
+                // Grass crowded out by trees this step does not spread.
+                int grass = Math.min(before[cell] & GRASS_MASK, getGrass(cell));
+                for(int n = 0; n < grass; n++) {
+                    spreadGrass(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove every plant.
+     */
+    public void clear()
+    {
+        Arrays.fill(counts, (byte) 0);
+        grassCount = 0;
+        treeCount = 0;
+    }
+
+    /**
+     * Let one tree in a square spread.
+     * @param cell The index of the square.
+     */
+    private void spreadTree(int cell)
+    {
+        int count = neighbourhood.neighbours(cell, adjacent);
+        for(int i = 0; i < count; i++) {
+            if(getPlants(adjacent[i]) < Field.MAX_PLANTS) {
+                addTree(adjacent[i]);
+                return;
+            }
+        }
+        for(int i = 0; i < count; i++) {
+            if(getGrass(adjacent[i]) > 0) {
+                counts[adjacent[i]] += ONE_TREE - 1;
+                grassCount--;
+                treeCount++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Let the grass spread, visiting only the squares with grass due
+     * to spread and a neighbour with room. The others draw no random
+     * numbers, so the plants spread with the same chances as when
+     * every square is visited, but not to the same squares.
+     */
+    private void spreadGrassByBitboards()
+    {
+        int depth = counts.length / width;
+        fillBitboards();
+        for(int row = 0; row < depth; row++) {
+            int base = row * words;
+            for(int word = 0; word < words; word++) {
+                long candidates = spreading[base + word] & roomNearby(row, word, depth);
+                while(candidates != 0) {
+                    int cell = row * width + word * 64 + Long.numberOfTrailingZeros(candidates);
+                    int grass = Math.min(before[cell] & GRASS_MASK, getGrass(cell));
+                    for(int n = 0; n < grass; n++) {
+                        spreadGrass(cell);
+                    }
+                    candidates &= candidates - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the bits of the bitboards from the counts: room from the
+     * counts now, and spreading grass from those at the start of the
+     * spread. Package-visible so that Benchmark can time it.
+     */
+    void fillBitboards()
+    {
+        int depth = counts.length / width;
+        for(int row = 0; row < depth; row++) {
+            int start = row * width;
+            for(int word = 0; word < words; word++) {
+                int first = start + word * 64;
+                if(wide && first + 64 <= start + width) {
+                    fillWordWide(row * words + word, first);
+                }
+                else {
+                    fillWord(row * words + word, first, Math.min(first + 64, start + width));
+                }
+            }
+        }
+    }
+
+    /**
+     * Set one word of each bitboard a square at a time.
+     * @param at The index of the word.
+     * @param first The index of the word's first square.
+     * @param last The index after the word's last square.
+     */
+    private void fillWord(int at, int first, int last)
+    {
+        long hasRoom = 0;
+        long hasGrass = 0;
+        for(int cell = last - 1; cell >= first; cell--) {
+            int packed = counts[cell] & 0xFF;
+            int plants = (packed & GRASS_MASK) + (packed >>> GRASS_BITS);
+            // The top bit of each difference is set if the count is
+            // under MAX_PLANTS, or above zero.
+            hasRoom = (hasRoom << 1) | ((plants - Field.MAX_PLANTS) >>> 31);
+            hasGrass = (hasGrass << 1) | ((-(before[cell] & GRASS_MASK)) >>> 31);
+        }
+        room[at] = hasRoom;
+        spreading[at] = hasGrass;
+    }
+
+    /**
+     * Set one word of each bitboard eight squares at a time, reading
+     * the eight bytes of their counts as one long and working on all
+     * of them at once. The sums never carry from one byte into the
+     * next, so the result is the same as fillWord's.
+     * @param at The index of the word.
+     * @param first The index of the word's first square.
+     */
+    private void fillWordWide(int at, int first)
+    {
+        long hasRoom = 0;
+        long hasGrass = 0;
+        for(int part = 0; part < 64; part += 8) {
+            long packed = (long) EIGHT_BYTES.get(counts, first + part);
+            long plants = (packed & EACH_GRASS) + ((packed >>> GRASS_BITS) & EACH_GRASS);
+            // The top bit of each byte is set where the square is full.
+            long full = (plants + EACH_BYTE * (0x80 - Field.MAX_PLANTS)) & EACH_TOP_BIT;
+            long grass = (long) EIGHT_BYTES.get(before, first + part) & EACH_GRASS;
+            // The top bit of each byte is set where there is grass.
+            long some = (grass + EACH_BYTE * 0x7F) & EACH_TOP_BIT;
+            hasRoom |= topBits(~full & EACH_TOP_BIT) << part;
+            hasGrass |= topBits(some) << part;
+        }
+        room[at] = hasRoom;
+        spreading[at] = hasGrass;
+    }
+
+    /**
+     * Gather the top bits of the eight bytes of a long into one byte,
+     * the lowest byte's into the lowest bit.
+     * @param bits A long with only the top bit of each byte set or not.
+     * @return The gathered bits.
+     */
+    private static long topBits(long bits)
+    {
+        return ((bits >>> 7) * GATHER) >>> 56;
+    }
+
+    /**
+     * Find the squares in one word of a row that have a neighbour with
+     * room.
+     * @param row The row.
+     * @param word The word of the row.
+     * @param depth The depth of the field.
+     * @return A bit per square, set if one of its neighbours has room.
+     */
+    private long roomNearby(int row, int word, int depth)
+    {
+        long nearby = beside(row, word, false);
+        if(row > 0) {
+            nearby |= beside(row - 1, word, true);
+        }
+        if(row < depth - 1) {
+            nearby |= beside(row + 1, word, true);
+        }
+        return nearby;
+    }
+
+    /**
+     * Find the squares in one word of a row whose left or right
+     * neighbour, or optionally themselves, have room.
+     * @param row The row.
+     * @param word The word of the row.
+     * @param self true to include the square itself.
+     * @return A bit per square.
+     */
+    private long beside(int row, int word, boolean self)
+    {
+        int at = row * words + word;
+        long bits = room[at];
+        long left = bits << 1;
+        long right = bits >>> 1;
+        if(word > 0) {
+            left |= room[at - 1] >>> 63;
+        }
+        if(word < words - 1) {
+            right |= room[at + 1] << 63;
+        }
+        return left | right | (self ? bits : 0);
+    }
+
+    /**
+     * Let one grass plant in a square spread.
+     * @param cell The index of the square.
+     */
+    private void spreadGrass(int cell)
+    {
+        int count = neighbourhood.neighbours(cell, adjacent);
+        for(int i = 0; i < count; i++) {
+            if(getPlants(adjacent[i]) < Field.MAX_PLANTS) {
+                addGrass(adjacent[i]);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Count how many of a number of plants die, each with the same
+     * chance.
+     * @param plants The number of plants.
+     * @param probability The chance of each dying.
+     * @param rand The random generator.
+     * @return The number that die.
+     */
+    private static int deaths(int plants, double probability, RandomGenerator rand)
+    {
+        int deaths = 0;
+        for(int n = 0; n < plants; n++) {
+            if(rand.nextDouble() <= probability) {
+                deaths++;
+            }
+        }
+        return deaths;
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Gather the population of many simulations, step by step, as they
+ * run. Each simulation tells the aggregator about its field after
+ * every step; the aggregator keeps only the totals for each step and
+ * species, so its size does not grow with the number of simulations.
+ * Simulations on different threads may report at the same time.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class PopulationAggregator implements SimulatorListener
+{
+    // The total population of each species at each step, indexed by
+    // step * speciesCount + species code.
+    private AtomicLongArray totals;
+    // The number of simulations that reported each step.
+    private AtomicLongArray reports;
+    // The number of steps recorded, counting step 0.
+    private int steps;
+    // The number of species codes, including EMPTY.
+    private int speciesCount;
+
+    /**
+     * Create an aggregator for runs of up to the given number of steps.
+     * @param steps The most steps a simulation will run.
+     */
+    public PopulationAggregator(int steps)
+    {
+        if(steps < 0) {
+            System.out.println("The number of steps must not be negative.");
+            System.out.println("Using default values.");
+            steps = 0;
+        }
+        this.steps = steps + 1;
+        speciesCount = Species.count();
+        totals = new AtomicLongArray(this.steps * speciesCount);
+        reports = new AtomicLongArray(this.steps);
+    }
+
+    /**
+     * Add the population of a simulation's field to the totals for
+     * the step. Steps beyond the end are ignored.
+     * @param step The step just run.
+     * @param field The simulation's field.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        if(step < 0 || step >= steps) {
+            return;
+        }
+        FieldStats stats = field.getStats();
+        int base = step * speciesCount;
+        for(int code = 1; code < speciesCount && code < stats.getSpeciesCount(); code++) {
+            int count = stats.getCount(code);
+            if(count > 0) {
+                totals.addAndGet(base + code, count);
+            }
+        }
+        reports.incrementAndGet(step);
+    }
+
+    /**
+     * @param step A step.
+     * @return The number of simulations that reached the step.
+     */
+    public long getReports(int step)
+    {
+        return reports.get(step);
+    }
+
+    /**
+     * @param step A step.
+     * @param species The species' code, as in Species.
+     * @return The total population of the species at the step, over
+     *         all the simulations that reached it.
+     */
+    public long getTotal(int step, int species)
+    {
+        return totals.get(step * speciesCount + species);
+    }
+
+    /**
+     * @param step A step.
+     * @param species The species' code, as in Species.
+     * @return The mean population of the species at the step, over
+     *         all the simulations that reached it, or 0 if none did.
+     */
+    public double getMean(int step, int species)
+    {
+        long count = getReports(step);
+        return count == 0 ? 0 : (double) getTotal(step, species) / count;
+    }
+
+    /**
+     * @return The number of species codes, including EMPTY.
+     */
+    public int getSpeciesCount()
+    {
+        return speciesCount;
+    }
+
+    /**
+     * @return The number of steps recorded, counting step 0.
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Describe the mean population of each species at a step.
+     * @param step A step.
+     * @return A string describing the step.
+     */
+    public String getDetails(int step)
+    {
+        StringBuffer buffer = new StringBuffer();
+        buffer.append("Step ");
+        buffer.append(step);
+        buffer.append(" (");
+        buffer.append(getReports(step));
+        buffer.append(" runs): ");
+        for(int code = 1; code < speciesCount; code++) {
+            buffer.append(Species.nameOf(code));
+            buffer.append(": ");
+            buffer.append(String.format("%.1f", getMean(step, code)));
+            buffer.append(' ');
+        }
+        return buffer.toString();
+    }
+}
@@ -1,10 +1,21 @@
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
 
 /**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
+ * Provide control over the randomization of the simulation. By using the fixed seed, 
+ * repeated runs will perform exactly the same (which helps with testing). Set 
  * 'useShared' to false to get different random behaviour every time.
  * 
+ * Every random stream is a SplittableRandom derived from the seed, so no stream is 
+ * shared between threads. Each thread has a stream of its own, numbered in the order 
+ * the threads first ask for one. A simulation, a step, or a part of a step (such as a 
+ * tile of the field) can have a stream of its own, derived from the seed and their 
+ * numbers alone, so the same run gives the same results on any number of threads.
+ * 
+ * A stream can also be bound to the current thread, in which case getRandom returns it
+ * instead of the thread's own one.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -12,10 +23,25 @@ public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
-    // Determine whether a shared random generator is to be provided.
+    // Determine whether the fixed seed is to be used.
     private static final boolean useShared = true;
+    // The seed all streams are derived from.
+    private static final long rootSeed = useShared ? SEED : System.nanoTime();
+    // The number of threads that have been given a stream.
+    private static final AtomicInteger threads = new AtomicInteger();
+    // The number of each thread, in the order they first asked for a stream.
+    private static final ThreadLocal<Integer> threadNumber = 
+        ThreadLocal.withInitial(threads::getAndIncrement);
+    // Each thread's own stream.
+    private static final ThreadLocal<SplittableRandom> own = 
+        ThreadLocal.withInitial(() -> new SplittableRandom(getThreadSeed()));
+    // The stream bound to each thread, if any.
+    private static final ThreadLocal<RandomGenerator> bound = new ThreadLocal<>();
+    // A counter-based generator for each thread to rekey for bindCounter.
+    private static final ThreadLocal<CounterRandom> counters = 
+        ThreadLocal.withInitial(() -> new CounterRandom(0, 0, 0, 0));
+    // The increment between successive draws for one key (the golden gamma).
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
 
     /**
      * Constructor for objects of class Randomizer
@@ -25,28 +51,176 @@ public class Randomizer
     }
 
     /**
-     * Provide a random generator.
-     * @return A random object.
+     * Provide a random generator: the one bound to the current thread,
+     * if any, or else the thread's own.
+     * @return A random generator.
      */
-    public static Random getRandom()
+    public static RandomGenerator getRandom()
     {
-        if(useShared) {
-            return rand;
+        RandomGenerator threadRandom = bound.get();
+        if(threadRandom != null) {
+            return threadRandom;
         }
         else {
-            return new Random();
+            return own.get();
         }
     }
     
     /**
-     * Reset the randomization.
-     * This will have no effect if randomization is not through
-     * a shared Random generator.
+     * @return The seed all streams are derived from.
+     */
+    public static long getSeed()
+    {
+        return rootSeed;
+    }
+    
+    /**
+     * Return the seed of one simulation of an ensemble. It depends only
+     * on the root seed and the number of the simulation.
+     * @param simulation The number of the simulation.
+     * @return The simulation's seed.
+     */
+    public static long getSimulationSeed(int simulation)
+    {
+        return mix(mix(rootSeed) ^ mix(simulation));
+    }
+    
+    /**
+     * Provide a generator for one part of one step of the simulation
+     * with the given seed. Its sequence depends only on the seed, the
+     * step and the part, so the same part of the same step always sees
+     * the same numbers.
+     * @param seed The seed of the simulation.
+     * @param step The step of the simulation.
+     * @param part Which part of the step, e.g. the number of a tile.
+     * @return A random generator.
+     */
+    public static RandomGenerator getRandom(long seed, int step, long part)
+    {
+        return new SplittableRandom(hash(seed, step, part));
+    }
+    
+    /**
+     * Bind a counter-based generator to the current thread, so that
+     * each number drawn is a pure function of the seed, the step, the
+     * square, the purpose, and the number of draws before it; see draw.
+     * The generator is kept for the thread and rekeyed, not created.
+     * @param seed The seed of the simulation.
+     * @param step The step of the simulation.
+     * @param cell The index of the square.
+     * @param purpose What the numbers are drawn for, e.g. which thing
+     *        in the square is drawing them.
+     */
+    public static void bindCounter(long seed, int step, int cell, int purpose)
+    {
+        CounterRandom counter = counters.get();
+        counter.setKey(seed, step, cell, purpose);
+        bound.set(counter);
+    }
+    
+    /**
+     * Return one counter-based draw: the number a generator bound with
+     * bindCounter(seed, step, cell, purpose) gives after the given
+     * number of earlier draws. This can be used to work out a single
+     * decision again in isolation.
+     * @param seed The seed of the simulation.
+     * @param step The step of the simulation.
+     * @param cell The index of the square.
+     * @param purpose What the number is drawn for.
+     * @param counter The number of earlier draws for the same key.
+     * @return The draw.
+     */
+    public static long draw(long seed, int step, int cell, int purpose, long counter)
+    {
+        return draw(counterKey(seed, step, cell, purpose), counter);
+    }
+    
+    /**
+     * Return the key of the draws for a square and purpose.
+     * @param seed The seed of the simulation.
+     * @param step The step of the simulation.
+     * @param cell The index of the square.
+     * @param purpose What the numbers are drawn for.
+     * @return The key.
+     */
+    public static long counterKey(long seed, int step, int cell, int purpose)
+    {
+        return hash(seed, step, ((long) cell << 32) | (purpose & 0xFFFFFFFFL));
+    }
+    
+    /**
+     * Return the draw with the given key after the given number of
+     * earlier draws. The draws of one key follow the SplitMix64
+     * sequence, but any one of them can be found without the others.
+     * @param key The key, made by counterKey.
+     * @param counter The number of earlier draws.
+     * @return The draw.
+     */
+    public static long draw(long key, long counter)
+    {
+        return mix(key + counter * GAMMA);
+    }
+    
+    /**
+     * Return a number that depends only on the given seed, the step
+     * and the part, and looks random.
+     * @param seed The seed of the simulation.
+     * @param step The step of the simulation.
+     * @param part Which part of the step.
+     * @return The hash.
+     */
+    public static long hash(long seed, int step, long part)
+    {
+        return mix(mix(seed + step) + part);
+    }
+    
+    /**
+     * Make getRandom return the given generator on the current thread,
+     * until unbind is called.
+     * @param threadRandom The generator for this thread.
+     */
+    public static void bind(RandomGenerator threadRandom)
+    {
+        bound.set(threadRandom);
+    }
+    
+    /**
+     * Return the current thread to using its own stream.
+     */
+    public static void unbind()
+    {
+        bound.remove();
+    }
+    
+    /**
+     * Reset the randomization: start the current thread's own stream
+     * again from the beginning.
+     * This will have no effect if the fixed seed is not used.
      */
     public static void reset()
     {
         if(useShared) {
-            rand.setSeed(SEED);
+            own.set(new SplittableRandom(getThreadSeed()));
         }
     }
+    
+    /**
+     * @return The seed of the current thread's own stream.
+     */
+    private static long getThreadSeed()
+    {
+        return mix(rootSeed - 1 - threadNumber.get());
+    }
+    
+    /**
+     * Scramble the bits of a value (the SplitMix64 finalizer), so
+     * that nearby inputs give unrelated seeds.
+     */
+    private static long mix(long value)
+    {
+        value += 0x9E3779B97F4A7C15L;
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
 }
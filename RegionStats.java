@@ -0,0 +1,253 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Counts of each species in any rectangle of a field, found without
+ * looking at the squares inside it. Alongside the totals kept by
+ * FieldStats, the field tells this of every thing placed in or
+ * removed from each square.
+ *
+ * The counts come from one of two kinds of table, one per species.
+ * A summed-area table holds, for each square, the count in the
+ * rectangle from the corner of the field to it; any rectangle is then
+ * four lookups. It is rebuilt, in one pass over the field, the first
+ * time a species is asked about after it has changed; a rebuild costs
+ * the same however much has changed, so it suits fields in which much
+ * changes between questions; the rows of the field are summed in
+ * bands on several threads, then the columns. A Fenwick table is
+ * updated with every change, in time proportional to the square of
+ * the logarithm of the field's size, and answers in the same time; it
+ * suits fields in which little changes between questions. Its entries
+ * are added to atomically, so the threads of the parallel engine can
+ * change it at once without waiting on each other.
+ * Changes may be made on several threads at once, but questions
+ * should be asked between steps.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class RegionStats
+{
+    /**
+     * How the counts of rectangles are found.
+     */
+    public enum Method
+    {
+        SUMMED_AREA, FENWICK
+    }
+
+    // The number of rows or columns summed by one task in a rebuild.
+    private static final int BAND = 64;
+
+    // The depth and width of the field.
+    private int depth, width;
+    // How the counts of rectangles are found.
+    private Method method;
+    // The number of each species in each square, indexed by species
+    // code and then by square.
+    private byte[][] counts;
+    // For each species, its summed-area table, with a row and column
+    // of zeros before the first (SUMMED_AREA only).
+    private int[][] sums;
+    // For each species, its Fenwick table (FENWICK only).
+    private AtomicIntegerArray[] trees;
+    // For each species, whether its summed-area table is out of date.
+    private boolean[] stale;
+
+    /**
+     * Create counts for an empty field.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param method How the counts of rectangles are to be found.
+     */
+    public RegionStats(int depth, int width, Method method)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.method = method;
+        counts = new byte[Species.count()][];
+        sums = new int[Species.count()][];
+        trees = new AtomicIntegerArray[Species.count()];
+        stale = new boolean[Species.count()];
+        for(int code = Species.DEER; code < Species.count(); code++) {
+            counts[code] = new byte[depth * width];
+            if(method == Method.SUMMED_AREA) {
+                sums[code] = new int[(depth + 1) * (width + 1)];
+            }
+            else {
+                trees[code] = new AtomicIntegerArray(depth * width);
+            }
+        }
+    }
+
+    /**
+     * @return How the counts of rectangles are found.
+     */
+    public Method getMethod()
+    {
+        return method;
+    }
+
+    /**
+     * Record a change in the number of a species in a square.
+     * @param species The species code.
+     * @param index The index of the square.
+     * @param change The number added, or minus the number removed.
+     */
+    public void change(int species, int index, int change)
+    {
+        if(species == Species.EMPTY) {
+            return;
+        }
+        counts[species][index] += change;
+        if(method == Method.SUMMED_AREA) {
+            stale[species] = true;
+        }
+        else {
+            addToFenwick(trees[species], index / width, index % width, change);
+        }
+    }
+
+    /**
+     * Count a species in a rectangle of the field. Any part of the
+     * rectangle outside the field is ignored.
+     * @param species The species code.
+     * @param row The top row of the rectangle.
+     * @param col The left column of the rectangle.
+     * @param rows The number of rows in the rectangle.
+     * @param cols The number of columns in the rectangle.
+     * @return The number of that species in the rectangle.
+     */
+    public int count(int species, int row, int col, int rows, int cols)
+    {
+        if(species == Species.EMPTY) {
+            return 0;
+        }
+        int top = Math.max(0, row);
+        int left = Math.max(0, col);
+        int bottom = Math.min(depth, row + rows);
+        int right = Math.min(width, col + cols);
+        if(top >= bottom || left >= right) {
+            return 0;
+        }
+        if(method == Method.SUMMED_AREA && stale[species]) {
+            rebuild(species);
+        }
+        return before(species, bottom, right) - before(species, top, right)
+               - before(species, bottom, left) + before(species, top, left);
+    }
+
+    /**
+     * @param species The species code.
+     * @param index The index of a square.
+     * @return The number of that species in the square.
+     */
+    public int countAt(int species, int index)
+    {
+        if(species == Species.EMPTY) {
+            return 0;
+        }
+        return counts[species][index];
+    }
+
+    /**
+     * Set every count to zero, as for an empty field.
+     */
+    public void clear()
+    {
+        for(int code = Species.DEER; code < Species.count(); code++) {
+            Arrays.fill(counts[code], (byte) 0);
+            if(method == Method.SUMMED_AREA) {
+                Arrays.fill(sums[code], 0);
+            }
+            else {
+                trees[code] = new AtomicIntegerArray(depth * width);
+            }
+            stale[code] = false;
+        }
+    }
+
+    /**
+     * Count a species in the rectangle above and to the left of a
+     * corner of the field's squares.
+     * @param species The species code.
+     * @param rows The number of rows above the corner.
+     * @param cols The number of columns to the left of it.
+     * @return The number of that species in the rectangle.
+     */
+    private int before(int species, int rows, int cols)
+    {
+        if(method == Method.SUMMED_AREA) {
+            return sums[species][rows * (width + 1) + cols];
+        }
+        AtomicIntegerArray tree = trees[species];
+        int sum = 0;
+        for(int i = rows; i > 0; i -= i & -i) {
+            for(int j = cols; j > 0; j -= j & -j) {
+                sum += tree.get((i - 1) * width + (j - 1));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Rebuild the summed-area table of a species from its counts: first
+     * the sum along each row, in bands of rows, then the sum down each
+     * column, in bands of columns, each band on a thread of the common
+     * pool.
+     * @param species The species code.
+     */
+    private synchronized void rebuild(int species)
+    {
+        if(!stale[species]) {
+            return;
+        }
+        byte[] cells = counts[species];
+        int[] table = sums[species];
+        int stride = width + 1;
+        IntStream.range(0, (depth + BAND - 1) / BAND).parallel().forEach(band -> {
+            int last = Math.min(depth, (band + 1) * BAND);
+            for(int row = band * BAND; row < last; row++) {
+                int rowSum = 0;
+                int here = (row + 1) * stride + 1;
+                int cell = row * width;
+                for(int col = 0; col < width; col++) {
+                    rowSum += cells[cell + col];
+                    table[here + col] = rowSum;
+                }
+            }
+        });
+        IntStream.range(0, (width + BAND - 1) / BAND).parallel().forEach(band -> {
+            int first = band * BAND + 1;
+            int last = Math.min(width, (band + 1) * BAND) + 1;
+            for(int row = 2; row <= depth; row++) {
+                int here = row * stride;
+                int above = here - stride;
+                for(int col = first; col < last; col++) {
+                    table[here + col] += table[above + col];
+                }
+            }
+        });
+        stale[species] = false;
+    }
+
+    /**
+     * Add to the count of a square in a Fenwick table. Things may be
+     * placed and removed on several threads at once, and every change
+     * touches entries shared with distant squares, so each entry is
+     * added to atomically.
+     * @param tree The table.
+     * @param row The row of the square.
+     * @param col The column of the square.
+     * @param change The amount to add.
+     */
+    private void addToFenwick(AtomicIntegerArray tree, int row, int col, int change)
+    {
+        for(int i = row + 1; i <= depth; i += i & -i) {
+            for(int j = col + 1; j <= width; j += j & -j) {
+                tree.getAndAdd((i - 1) * width + (j - 1), change);
+            }
+        }
+    }
+}
@@ -1,8 +1,9 @@
-import java.util.Random;
+import java.util.random.RandomGenerator;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
 import java.awt.Color;
+import java.awt.GraphicsEnvironment;
 
 /**
  * A simple predator-prey simulator, based on a rectangular field
@@ -15,6 +16,19 @@ import java.awt.Color;
  */
 public class Simulator
 {
+    /**
+     * The ways in which a run can be paced. UNTHROTTLED runs steps
+     * as fast as possible and shows every one. FIXED_RATE runs a
+     * fixed number of steps per second, on a schedule that does not
+     * drift however long each step takes. RENDER_LIMITED runs steps
+     * as fast as possible, but refreshes the view at most a fixed
+     * number of times per second.
+     */
+    public enum Pacing
+    {
+        UNTHROTTLED, FIXED_RATE, RENDER_LIMITED
+    }
+    
     // Constants representing configuration information for the simulation.
     // The default width for the grid.
     private static final int DEFAULT_WIDTH = 12;
@@ -34,21 +48,55 @@ public class Simulator
     private static final int DEFAULT_GRASS = 20;
     // The default number of trees to start the simulation.
     private static final int DEFAULT_TREE = 5;
+    // The default rate of a run shown in a window, in steps per second.
+    private static final double DEFAULT_RATE = 16;
 
-    // List of living organisms in the field.
-    private ArrayList<Thing> things;
+    // The living organisms in the field, when running on an engine.
+    private ThingStore things;
+    // The living organisms, by the step they next act on, when running
+    // on the sequential engine.
+    private TimingWheel wheel;
+    // The things woken from quiet tiles, reused every step.
+    private List<Thing> woken;
     // The current state of the field.
     private Field field;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
+    // A graphical view of the simulation, or null when running
+    // without a display.
     private SimulatorView view;
+    // The listeners told about each step.
+    private List<SimulatorListener> listeners;
     // The number of deer at beginning of simulation.
     private int deerCount;
     // The number of trees at beginning of simulation.
     private int treeCount;
     // The number of grass plants at beginning of simulation.
     private int grassCount;
+    // The engine running each step, or null to let things act one
+    // after another on this thread.
+    private StepEngine engine;
+    // How runs are paced. May be changed from another thread while
+    // a run is in progress.
+    private volatile Pacing pacing;
+    // The steps per second, or view refreshes per second, of the pacing.
+    private volatile double rate;
+    // Whether the pacing has changed since the schedule was set.
+    private volatile boolean pacingChanged;
+    // The time at which the next step is due, in nanoseconds.
+    private long nextStep;
+    // The earliest time at which the view may next be refreshed.
+    private long nextRender;
+    // Whether the view is showing an earlier step than the last one.
+    private boolean viewBehind;
+    // The seed the simulation's random streams are derived from.
+    private long seed;
+    // The simulation's own random generator, or null to use the
+    // stream of the thread it runs on.
+    private RandomGenerator random;
+    // Whether each thing's random numbers are drawn by counter, keyed
+    // by its square and slot, when running on the sequential engine.
+    private boolean counterDraws;
     
     /**
      * Construct a simulation field with default size.
@@ -58,13 +106,75 @@ public class Simulator
         this(DEFAULT_DEPTH, DEFAULT_WIDTH, deer, grass, trees);
     }
     
+    /**
+     * Create a simulation field with the given size. The field is
+     * shown in a window unless there is no display.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     */
+    public Simulator(int depth, int width, int deer, int grass, int trees)
+    {
+        this(depth, width, deer, grass, trees, !GraphicsEnvironment.isHeadless());
+    }
+    
+    /**
+     * Create a simulation field with the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView true to show the field in a window, false to
+     *        run headless, with only the listeners added later.
+     */
+    public Simulator(int depth, int width, int deer, int grass, int trees, boolean showView)
+    {
+        this(depth, width, deer, grass, trees, showView, Field.Storage.OBJECTS);
+    }
+    
+    /**
+     * Create a simulation field with the given size, storing its
+     * contents in the given way.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView true to show the field in a window, false to
+     *        run headless, with only the listeners added later.
+     * @param storage How the field stores its contents.
+     */
+    public Simulator(int depth, int width, int deer, int grass, int trees, boolean showView,
+                     Field.Storage storage)
+    {
+        this(depth, width, deer, grass, trees, showView, storage, null, Randomizer.getSeed());
+    }
+    
+    /**
+     * Create a headless simulation with random streams of its own,
+     * derived from the given seed, so that it can run alongside other
+     * simulations, each on its own thread, without sharing any state
+     * with them.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param seed The seed of this simulation.
+     */
+    public Simulator(int depth, int width, int deer, int grass, int trees, long seed)
+    {
+        this(depth, width, deer, grass, trees, false, Field.Storage.OBJECTS,
+             Randomizer.getRandom(seed, 0, -1), seed);
+    }
+    
     /**
      * Create a simulation field with the given size.
      * @param depth Depth of the field. Must be greater than zero.
      * @param width Width of the field. Must be greater than zero.
+     * @param showView true to show the field in a window.
+     * @param storage How the field stores its contents.
+     * @param random The simulation's own generator, or null to use
+     *        the stream of the thread it runs on.
+     * @param seed The seed of the simulation's streams.
      */
-    private Simulator(int depth, int width, int deer, int grass, int trees)
+    private Simulator(int depth, int width, int deer, int grass, int trees, 
+                      boolean showView, Field.Storage storage, RandomGenerator random,
+                      long seed)
     {
+        this.random = random;
+        this.seed = seed;
   
         // Check grid dimensions to be reasonable.
         if(width <= 0 || depth <= 0) {
@@ -96,15 +206,48 @@ public class Simulator
             treeCount = DEFAULT_TREE;
         }
         
-        things = new ArrayList<>();
-        field = new Field(depth, width);
+        // Check the field can hold the populations, as otherwise
+        // populating it would never finish.
+        if(deerCount > (long) depth * width
+           || (long) grassCount + treeCount > (long) depth * width * Field.MAX_PLANTS) {
+            System.out.println("The field is too small to hold that many deer and plants.");
+            System.out.println("Using default values.");
+            depth = DEFAULT_DEPTH;
+            width = DEFAULT_WIDTH;
+            deerCount = DEFAULT_DEER;
+            grassCount = DEFAULT_GRASS;
+            treeCount = DEFAULT_TREE;
+        }
+        
+        things = new ThingStore();
+        wheel = new TimingWheel();
+        woken = new ArrayList<>();
+        field = new Field(depth, width, storage);
+        listeners = new ArrayList<>();
+        // Let the statistics check themselves, if asked to.
+        listeners.add(field.getStats());
 
-        // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width);
-        view.setColor(Deer.class, Color.BLACK);
-        view.setColor(Grass.class, Color.GREEN);
-        view.setColor(Tree.class, Color.ORANGE);
-        view.setColor(Fire.class, Color.RED);
+        if(showView) {
+            if(GraphicsEnvironment.isHeadless()) {
+                System.out.println("There is no display to show the field on.");
+                System.out.println("Running without a view.");
+            }
+            else {
+                // Create a view of the state of each location in the field.
+                view = new SimulatorView(depth, width);
+                view.setColor(Deer.class, Color.BLACK);
+                view.setColor(Grass.class, Color.GREEN);
+                view.setColor(Tree.class, Color.ORANGE);
+                view.setColor(Fire.class, Color.RED);
+                listeners.add(view);
+            }
+        }
+        if(view != null) {
+            setPacing(Pacing.FIXED_RATE, DEFAULT_RATE);
+        }
+        else {
+            setPacing(Pacing.UNTHROTTLED, 0);
+        }
         
         // Setup a valid starting point.
         reset();
@@ -126,9 +269,71 @@ public class Simulator
      */
     public void simulate(int numSteps)
     {
-        for(int step = 1; step <= numSteps && view.isViable(field); step++) {
+        pacingChanged = true;
+        for(int step = 1; step <= numSteps && isViable(); step++) {
             simulateOneStep();
-            delay(60);   // uncomment this to run more slowly
+            pace();
+        }
+        if(viewBehind) {
+            // Show where the run stopped.
+            view.stepCompleted(this.step, field);
+            viewBehind = false;
+        }
+    }
+    
+    /**
+     * Set how runs are paced. This may be called while a run is in
+     * progress, from another thread, and takes effect from the next step.
+     * @param pacing The kind of pacing.
+     * @param rate For FIXED_RATE, the number of steps per second; for
+     *        RENDER_LIMITED, the most view refreshes per second.
+     *        Ignored for UNTHROTTLED.
+     */
+    public void setPacing(Pacing pacing, double rate)
+    {
+        if(pacing != Pacing.UNTHROTTLED && !(rate > 0)) {
+            System.out.println("The rate must be greater than zero.");
+            System.out.println("Using default values.");
+            rate = DEFAULT_RATE;
+        }
+        this.rate = rate;
+        this.pacing = pacing;
+        pacingChanged = true;
+    }
+    
+    /**
+     * @return How runs are paced.
+     */
+    public Pacing getPacing()
+    {
+        return pacing;
+    }
+    
+    /**
+     * Wait, if the pacing asks for it, until the next step is due.
+     * Steps are due at fixed intervals from the start of the run, so
+     * time spent in the steps does not add up. A run that falls more
+     * than a step behind picks up from the present rather than
+     * hurrying to catch up.
+     */
+    private void pace()
+    {
+        long now = System.nanoTime();
+        if(pacingChanged) {
+            pacingChanged = false;
+            nextStep = now;
+            nextRender = now;
+        }
+        if(pacing == Pacing.FIXED_RATE) {
+            long interval = (long) (1e9 / rate);
+            nextStep += interval;
+            if(nextStep < now - interval) {
+                nextStep = now;
+            }
+            while(now < nextStep) {
+                LockSupport.parkNanos(nextStep - now);
+                now = System.nanoTime();
+            }
         }
     }
     
@@ -140,40 +345,315 @@ public class Simulator
     public void simulateOneStep()
     {
         step++;
-        List<Thing> newFires = new ArrayList<>();
-        if(step > 0 && step % FIRE_STARTS == 0) {
-            startFire(newFires);
-        }
-        // Provide space for new organisms.
-        List<Thing> newThings = new ArrayList<>();
-        // Let all entities act.
-        for(Iterator<Thing> it = things.iterator(); it.hasNext(); ) {
-            Thing thing = it.next();
-            thing.act(newThings);
-            if(! thing.isViable()) {
-                it.remove();
+        field.setStep(step);
+        if(engine != null) {
+            // Give the fire its own random stream, so that the engine's
+            // results depend only on the seed and the step.
+            Randomizer.bind(Randomizer.getRandom(seed, step, -1));
+        }
+        else if(counterDraws) {
+            // The fire's draws are keyed to no square.
+            Randomizer.bindCounter(seed, step, -1, 0);
+        }
+        else if(random != null) {
+            Randomizer.bind(random);
+        }
+        try {
+            // Fire burns and spreads from the squares already alight.
+            Fire.spread(field);
+            if(step > 0 && step % FIRE_STARTS == 0) {
+                startFire();
+            }
+            // Deer far from food steer by the plants left after the fire.
+            field.updateFlowField();
+            if(engine == null) {
+                // Provide space for new organisms, reusing the same
+                // buffer every step.
+                List<Thing> newThings = things.getBirths();
+                ActiveTiles tiles = field.getActiveTiles();
+                // Things woken by the fire may be due this step.
+                wakeTiles(tiles, step - 1);
+                // Let the entities due this step act; the others sleep.
+                List<Thing> due = wheel.takeDue(step);
+                for(Thing thing : due) {
+                    if(thing.isViable()) {
+                        int index = field.indexOf(thing.getLocation());
+                        if(tiles != null && tiles.isQuiet(index, step)) {
+                            // Nothing near it has changed since it last acted.
+                            tiles.sleep(thing, index);
+                        }
+                        else {
+                            if(counterDraws) {
+                                Randomizer.bindCounter(seed, step, index, thing.getSlot());
+                            }
+                            thing.act(newThings);
+                            if(thing.isViable()) {
+                                wheel.schedule(thing, thing.nextWake(step));
+                            }
+                        }
+                    }
+                }
+                wheel.release(due);
+                // Schedule the newly born deer and new plants.
+                scheduleAll(newThings);
+                newThings.clear();
+                wakeTiles(tiles, step);
             }
-            
         }
-                                
-        // Add the newly born deer and new plants to the main lists.
-        things.addAll(newThings);
-        things.addAll(newFires);
+        finally {
+            Randomizer.unbind();
+        }
+        
+        if(engine != null) {
+            engine.step(step, things);
+        }
         
-        view.showStatus(step, field);
+        notifyListeners();
+    }
+    
+    /**
+     * Determine whether the simulation should continue to run.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable()
+    {
+        return field.getStats().isViable(field);
+    }
+    
+    /**
+     * Tell a listener about every later step, and about resets.
+     * @param listener The listener to add.
+     */
+    public void addListener(SimulatorListener listener)
+    {
+        listeners.add(listener);
     }
     
     /**
-     * If no fire is already burning, start a fire in the field.
+     * Stop telling a listener about steps.
+     * @param listener The listener to remove.
      */
-    private void startFire(List<Thing> fire)
+    public void removeListener(SimulatorListener listener)
     {
-        Random rand = Randomizer.getRandom();
-        int row = rand.nextInt(field.getWidth());
-        int col = rand.nextInt(field.getDepth());
-        Location location = new Location(row, col);
-        Fire newFire = new Fire(field, location);
-        fire.add(newFire);
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Tell each listener about the step just run.
+     */
+    private void notifyListeners()
+    {
+        boolean showView = true;
+        if(view != null && pacing == Pacing.RENDER_LIMITED && step > 0) {
+            long now = System.nanoTime();
+            showView = now >= nextRender;
+            if(showView) {
+                nextRender = now + (long) (1e9 / rate);
+            }
+        }
+        for(SimulatorListener listener : listeners) {
+            if(listener != view || showView) {
+                listener.stepCompleted(step, field);
+            }
+        }
+        viewBehind = !showView;
+    }
+    
+    /**
+     * Run each step on the parallel engine, which splits the field
+     * into square tiles and lets the tiles act on several threads.
+     * Runs on the engine give the same results for any number of
+     * threads, but not the same results as the sequential engine.
+     * @param threads The number of worker threads.
+     * @param tileSize The side of each tile, in squares.
+     */
+    public void useParallelEngine(int threads, int tileSize)
+    {
+        if(threads <= 0) {
+            System.out.println("The number of threads must be greater than zero.");
+            System.out.println("Using one thread per processor.");
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        int minTileSize = ParallelEngine.MIN_TILE_SIZE;
+        FoodIndex food = field.getFoodIndex();
+        if(food != null) {
+            minTileSize = FoodIndex.minTileSize(food.getRadius());
+        }
+        if(tileSize < minTileSize) {
+            System.out.println("Tiles must be at least " + minTileSize + " squares across.");
+            System.out.println("Using the smallest tile size.");
+            tileSize = minTileSize;
+        }
+        setEngine(new ParallelEngine(field, tileSize, threads, seed));
+    }
+    
+    /**
+     * Run each step on the intent engine: every thing first records
+     * what it intends to do, in parallel, then the intents are carried
+     * out, with conflicts settled by a seeded priority. The results
+     * do not depend on the order of the things or the number of
+     * threads.
+     * @param threads The number of threads to plan on.
+     */
+    public void useIntentEngine(int threads)
+    {
+        if(threads <= 0) {
+            System.out.println("The number of threads must be greater than zero.");
+            System.out.println("Using one thread per processor.");
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        setEngine(new IntentEngine(field, threads, seed));
+    }
+    
+    /**
+     * Choose how things draw random numbers on the sequential engine.
+     * With counter draws, every number a thing draws in its turn is a
+     * pure function of the seed, the step, the thing's square and slot,
+     * and how many it has drawn before, so it does not depend on what
+     * acted earlier in the step. (Where things meet, the order they act
+     * in still matters.) Any one draw can be found again with
+     * Randomizer.draw. The intent engine always draws this way.
+     * @param counterDraws true for counter draws, false to draw from
+     *        one stream in the order the things act.
+     */
+    public void useCounterDraws(boolean counterDraws)
+    {
+        this.counterDraws = counterDraws;
+    }
+    
+    /**
+     * Choose whether the sequential engine skips the quiet parts of the
+     * field. The field is cut into tiles, and the things of a tile in
+     * which nothing has changed for a while sleep until something in
+     * or next to the tile changes. Their acts would change nothing, so
+     * the rules of the simulation are the same either way, but woken
+     * things rejoin the wheel in a different order, and sleeping things
+     * draw no random numbers, so a run takes a different course.
+     * @param tileSize The side of the tiles, in squares, or 0 to visit
+     *        every thing when it is due.
+     */
+    public void useActiveTiles(int tileSize)
+    {
+        ActiveTiles tiles = field.getActiveTiles();
+        if(tiles != null) {
+            List<Thing> sleeping = new ArrayList<>();
+            tiles.wakeAll(sleeping);
+            scheduleAll(sleeping);
+        }
+        if(tileSize < 0) {
+            System.out.println("The tile size must not be negative.");
+            System.out.println("Using default values.");
+            tileSize = 0;
+        }
+        field.trackActivity(tileSize);
+    }
+    
+    /**
+     * Choose whether the field keeps track of the food around each
+     * square. Deer then find the richest square next to them without
+     * looking at each, and when they find nothing to eat, head for the
+     * free square with the most food within the radius, so they can
+     * sense food further away at no extra cost per step. A run takes
+     * a different course from one without the index.
+     * @param radius The number of squares on each side of a square
+     *        whose food the deer can sense, or 0 to stop tracking.
+     */
+    public void useFoodIndex(int radius)
+    {
+        if(radius < 0) {
+            System.out.println("The radius must not be negative.");
+            System.out.println("Using default values.");
+            radius = 0;
+        }
+        if(engine instanceof ParallelEngine
+           && ((ParallelEngine) engine).getTileSize() < FoodIndex.minTileSize(radius)) {
+            System.out.println("The tiles of the parallel engine are too small for that radius.");
+            System.out.println("Using the sequential engine.");
+            useSequentialEngine();
+        }
+        field.trackFood(radius);
+    }
+    
+    /**
+     * Choose whether deer that find no food around them head towards
+     * the nearest plants, however far away. A flow field of the
+     * distance of every square from the nearest plants is found once
+     * at the start of each step, and shared by all the deer. A run
+     * takes a different course from one without it.
+     * @param on true to steer deer towards distant food.
+     */
+    public void useFlowField(boolean on)
+    {
+        field.trackFlow(on);
+    }
+    
+    /**
+     * Run each step on the calling thread, letting the things due to
+     * act on the step act one after another. Deer act every step;
+     * plants sleep until the steps on which they can spread.
+     */
+    public void useSequentialEngine()
+    {
+        if(engine != null) {
+            engine.shutdown();
+            engine = null;
+            wheel.clear(step);
+            scheduleAll(things);
+            things.clear();
+        }
+    }
+    
+    /**
+     * Run each step on the given engine, handing it every thing.
+     * @param newEngine The engine.
+     */
+    private void setEngine(StepEngine newEngine)
+    {
+        useSequentialEngine();
+        wheel.drainTo(things);
+        if(field.getActiveTiles() != null) {
+            field.getActiveTiles().wakeAll(things);
+        }
+        engine = newEngine;
+    }
+    
+    /**
+     * Put the sleepers of any tiles woken lately back on the wheel.
+     * @param tiles The field's active tiles, or null if it has none.
+     * @param after The step after which they are to act.
+     */
+    private void wakeTiles(ActiveTiles tiles, int after)
+    {
+        if(tiles != null && tiles.hasWoken()) {
+            tiles.takeWoken(woken);
+            for(Thing thing : woken) {
+                wheel.schedule(thing, thing.nextWake(after));
+            }
+            woken.clear();
+        }
+    }
+    
+    /**
+     * Put things on the wheel for the next step on which each acts.
+     * @param newThings The things.
+     */
+    private void scheduleAll(List<Thing> newThings)
+    {
+        for(Thing thing : newThings) {
+            wheel.schedule(thing, thing.nextWake(step));
+        }
+    }
+    
+    /**
+     * Start a fire in a random square of the field, if it has plants
+     * to burn and no deer.
+     */
+    private void startFire()
+    {
+        RandomGenerator rand = Randomizer.getRandom();
+        int row = rand.nextInt(field.getDepth());
+        int col = rand.nextInt(field.getWidth());
+        Fire.startFire(field, field.getLocation(row, col));
     }
     
     
@@ -184,24 +664,49 @@ public class Simulator
     public void reset()
     {
         step = 0;
+        field.setStep(step);
         things.clear();
-        populate();
+        wheel.clear(step);
+        if(random != null) {
+            Randomizer.bind(random);
+        }
+        try {
+            populate();
+        }
+        finally {
+            Randomizer.unbind();
+        }
+        if(engine == null) {
+            scheduleAll(things);
+            things.clear();
+        }
                 
-        // Show the starting state in the view.
-        view.showStatus(step, field);
+        // Show the starting state to the listeners.
+        notifyListeners();
     }
     
+    /**
+     * @return The current step of the simulation.
+     */
     public int getStep()
     {
         return step;
     }
     
+    /**
+     * @return The field of the simulation.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+    
     /**
      * Randomly populate the field with organisms.
      */
     private void populate()
     {
-        Random rand = Randomizer.getRandom();
+        RandomGenerator rand = Randomizer.getRandom();
         field.clear();
         int deerCreated = 0;
         int grassCreated = 0;
@@ -209,56 +714,33 @@ public class Simulator
         while(deerCreated < deerCount) {
              int row = rand.nextInt(field.getDepth());
              int col = rand.nextInt(field.getWidth());
-             Location location = new Location(row, col);
-             Deer deer = new Deer(false, field, location);
-             things.add(deer);
-             deerCreated++;
+             Location location = field.getLocation(row, col);
+             if(field.getObjectAt(location) == null) {
+                 Deer deer = new Deer(false, field, location);
+                 things.add(deer);
+                 deerCreated++;
+             }
         }
         while(treesCreated < treeCount) {
             int row = rand.nextInt(field.getDepth());
             int col = rand.nextInt(field.getWidth()); 
-            Location location = new Location(row, col);
-            Tree tree = new Tree(false, field, location);
-            ArrayList<Plant> plants = location.getPlants();
-            if(plants.size() < 10) {
+            if(field.getPlantCount(row, col) < Field.MAX_PLANTS) {
+                Location location = field.getLocation(row, col);
+                Tree tree = new Tree(false, field, location);
                 things.add(tree);
-                location.addPlant(tree);
                 treesCreated++;
             } 
-            else {
-                tree.setDead();
-            }
         }
         while(grassCreated < grassCount) {
             int row = rand.nextInt(field.getDepth());
             int col = rand.nextInt(field.getWidth()); 
-            Location location = new Location(row, col);
-            Grass grass = new Grass(false, field, location);
-            ArrayList<Plant> plants = location.getPlants();
-            if(plants.size() < 10) {
+            if(field.getPlantCount(row, col) < Field.MAX_PLANTS) {
+                Location location = field.getLocation(row, col);
+                Grass grass = new Grass(false, field, location);
                 things.add(grass);
-                location.addPlant(grass); 
                 grassCreated++;
             } 
-            else {
-                grass.setDead();
-            }
-            
         }
                
     }
-    
-    /**
-     * Pause for a given time.
-     * @param millisec  The time to pause for, in milliseconds
-     */
-    private void delay(int millisec)
-    {
-        try {
-            Thread.sleep(millisec);
-        }
-        catch (InterruptedException ie) {
-            // wake up
-        }
-    }
 }
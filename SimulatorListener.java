@@ -0,0 +1,19 @@
+/**
+ * Something that wants to hear about the progress of a simulation,
+ * such as a view of the field or a log of the population. A
+ * simulator runs the same with or without listeners, so it can run
+ * on a machine that has no display.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public interface SimulatorListener
+{
+    /**
+     * Called when the simulator has been reset, and after every step.
+     * The field must not be changed.
+     * @param step The number of the step just run, or 0 after a reset.
+     * @param field The field after the step.
+     */
+    void stepCompleted(int step, Field field);
+}
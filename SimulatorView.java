@@ -15,7 +15,7 @@ import java.util.ArrayList;
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
-public class SimulatorView extends JFrame
+public class SimulatorView extends JFrame implements SimulatorListener
 {
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
@@ -30,8 +30,6 @@ public class SimulatorView extends JFrame
     
     // A map for storing colors for participants in the simulation
     private Map<Class, Color> colors;
-    // A statistics object computing and storing simulation information
-    private FieldStats stats;
 
     /**
      * Create a view of the given width and height.
@@ -40,7 +38,6 @@ public class SimulatorView extends JFrame
      */
     public SimulatorView(int height, int width)
     {
-        stats = new FieldStats();
         colors = new LinkedHashMap<>();
 
         setTitle("Deer and Vegetation Simulation");
@@ -86,6 +83,16 @@ public class SimulatorView extends JFrame
     
     
     
+    /**
+     * Show the field after each step of the simulation.
+     * @param step Which iteration step it is.
+     * @param field The field whose status is to be displayed.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        showStatus(step, field);
+    }
+    
     /**
      * Show the current status of the field.
      * @param step Which iteration step it is.
@@ -98,31 +105,31 @@ public class SimulatorView extends JFrame
         }
             
         stepLabel.setText(STEP_PREFIX + step);
-        stats.reset();
         
         fieldView.preparePaint();
 
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                Object object = field.getObjectAt(row, col);
-                if(object != null && object instanceof Fire) {
-                    stats.incrementCount(object.getClass());
-                    fieldView.drawMark(col, row, getColor(object.getClass()));
-                } else if(object != null && object instanceof Animal) {
-                    stats.incrementCount(object.getClass());
-                    fieldView.drawMark(col, row, getColor(object.getClass()));
-                } else if(object != null && object instanceof Plant) {
-                    stats.incrementCount(object.getClass());
-                    fieldView.drawMark(col, row, getColor(object.getClass()));
+                Class<?> occupant = Species.classOf(field.getSpeciesAt(row, col));
+                Class<?> mainPlant = null;
+                if(field.getPlantCount(row, col) > 0) {
+                    mainPlant = field.getMainPlant(row, col);
+                }
+                if(occupant != null) {
+                    fieldView.drawMark(col, row, getColor(occupant));
                 } 
+                else if(field.isBurning(row, col)) {
+                    fieldView.drawMark(col, row, getColor(Fire.class));
+                }
+                else if(mainPlant != null) {
+                    fieldView.drawMark(col, row, getColor(mainPlant));
+                }
                 else {
                     fieldView.drawMark(col, row, EMPTY_COLOR);
                 }
             }
         }
-        stats.countFinished();
-
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
+        population.setText(POPULATION_PREFIX + field.getStats().getPopulationDetails(field));
         fieldView.repaint();
     }
 
@@ -132,7 +139,7 @@ public class SimulatorView extends JFrame
      */
     public boolean isViable(Field field)
     {
-        return stats.isViable(field);
+        return field.getStats().isViable(field);
     }
     
     /**
@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A registry of the kinds of thing that can be found in the field.
+ * Each kind is given a small integer code when it is registered, with
+ * the codes handed out one after another, so counts of each species
+ * can be kept in arrays indexed by code, and always listed in the
+ * same order. The codes also let the field store what is in each
+ * square in a byte, and let full-field scans compare numbers rather
+ * than test classes.
+ *
+ * The species of the simulation are registered here; a new species
+ * registers itself with register before any of it is created.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class Species
+{
+    // The code of an empty square.
+    public static final byte EMPTY = 0;
+    // The codes of each kind of thing, in the order registered below.
+    public static final byte DEER = 1;
+    public static final byte GRASS = 2;
+    public static final byte TREE = 3;
+    // The most codes there can be, including EMPTY.
+    public static final int MAX_SPECIES = Byte.MAX_VALUE + 1;
+
+    // The class for each code; null for EMPTY.
+    private static final List<Class<?>> classes = new CopyOnWriteArrayList<>();
+    // The classes whose codes have been looked up, and so are cached.
+    private static final List<Class<?>> lookedUp = new ArrayList<>();
+    // The code of each class: that of the class or of its nearest
+    // registered superclass, or EMPTY if there is none. Once found, a
+    // class's code is cached and never found again.
+    private static final ClassValue<Byte> codes = new ClassValue<Byte>() {
+        protected Byte computeValue(Class<?> kind)
+        {
+            synchronized(Species.class) {
+                lookedUp.add(kind);
+                for(Class<?> type = kind; type != null; type = type.getSuperclass()) {
+                    int code = classes.indexOf(type);
+                    if(code > 0) {
+                        return (byte) code;
+                    }
+                }
+                return EMPTY;
+            }
+        }
+    };
+
+    static {
+        classes.add(null);
+        register(Deer.class);
+        register(Grass.class);
+        register(Tree.class);
+    }
+
+    /**
+     * Give a kind of thing the next free code. Registering a kind a
+     * second time returns the code it already has. Fields and
+     * statistics size their arrays by the number of species when they
+     * are created, so species should be registered before then. A
+     * kind cannot be registered once the code of it or of any of its
+     * subclasses has been looked up, as that code is cached.
+     * @param kind The class of the things.
+     * @return The kind's code.
+     */
+    public static synchronized byte register(Class<?> kind)
+    {
+        int code = classes.indexOf(kind);
+        if(code < 0) {
+            if(classes.size() >= MAX_SPECIES) {
+                System.out.println("There are too many species to register " + kind.getName() + ".");
+                System.out.println("Using the code of an empty square.");
+                return EMPTY;
+            }
+            for(Class<?> type : lookedUp) {
+                if(kind.isAssignableFrom(type)) {
+                    System.out.println("The code of " + type.getName() + " was looked up before "
+                                       + kind.getName() + " was registered.");
+                    System.out.println("Using the code of an empty square.");
+                    return EMPTY;
+                }
+            }
+            code = classes.size();
+            classes.add(kind);
+        }
+        return (byte) code;
+    }
+
+    /**
+     * Return the code for the kind of the given object.
+     * @param object The object, which may be null.
+     * @return The object's code, or EMPTY if it is null or unknown.
+     */
+    public static byte codeOf(Object object)
+    {
+        if(object instanceof Thing) {
+            return ((Thing) object).getSpecies();
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Return the code for a kind of thing.
+     * @param kind The class of the things.
+     * @return The kind's code, or EMPTY if it is not registered.
+     */
+    public static byte codeOf(Class<?> kind)
+    {
+        return codes.get(kind);
+    }
+
+    /**
+     * Return the class for a code.
+     * @param code The code.
+     * @return The class, or null for EMPTY.
+     */
+    public static Class<?> classOf(int code)
+    {
+        return classes.get(code);
+    }
+
+    /**
+     * Return the name of a species, as used in population details.
+     * @param code The code.
+     * @return The name of the species' class.
+     */
+    public static String nameOf(int code)
+    {
+        Class<?> kind = classOf(code);
+        return kind == null ? "Empty" : kind.getName();
+    }
+
+    /**
+     * @return The number of codes in use, including EMPTY.
+     */
+    public static int count()
+    {
+        return classes.size();
+    }
+}
@@ -0,0 +1,252 @@
+import java.util.Arrays;
+
+/**
+ * The members of one species, stored as columns of numbers rather
+ * than as objects: for each member, a row holding its square, the
+ * step it was born on and, for species that have it, its health.
+ * A member costs a dozen or so bytes, where an object with its
+ * header and references costs several times that.
+ *
+ * The members in each square are chained together, newest first, so
+ * those in a square can be found without a search. The rows of dead
+ * members are reused by new ones.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class SpeciesColumns
+{
+    // The room made for members when no size is given.
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // The square of each member.
+    private int[] cells;
+    // The step each member was born on.
+    private int[] births;
+    // The health of each member, or null if the species has none.
+    private byte[] health;
+    // For a living member, the row after it in its square, plus one,
+    // or 0 if it is the last; for a free row, the next free row, plus one.
+    private int[] next;
+    // One bit per row, set while the row holds a living member.
+    private long[] alive;
+    // The first row in each square, plus one, or 0 if there is none.
+    private int[] first;
+    // The number of rows ever used; every living member is below this.
+    private int rows;
+    // The number of living members.
+    private int count;
+    // The first free row, plus one, or 0 if there is none.
+    private int free;
+
+    /**
+     * Create an empty store for a species.
+     * @param squares The number of squares in the field.
+     * @param withHealth true if the members have a health level.
+     */
+    public SpeciesColumns(int squares, boolean withHealth)
+    {
+        cells = new int[INITIAL_CAPACITY];
+        births = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        if(withHealth) {
+            health = new byte[INITIAL_CAPACITY];
+        }
+        alive = new long[INITIAL_CAPACITY / 64];
+        first = new int[squares];
+    }
+
+    /**
+     * Add a member in a square, ahead of any already there.
+     * @param cell The index of its square.
+     * @param birth The step it was born on.
+     * @return Its row.
+     */
+    public int add(int cell, int birth)
+    {
+        int row;
+        if(free > 0) {
+            row = free - 1;
+            free = next[row];
+        }
+        else {
+            ensureCapacity(rows + 1);
+            row = rows++;
+        }
+        cells[row] = cell;
+        births[row] = birth;
+        alive[row >>> 6] |= 1L << row;
+        link(row, cell);
+        count++;
+        return row;
+    }
+
+    /**
+     * Remove a member, freeing its row.
+     * @param row The member's row.
+     */
+    public void remove(int row)
+    {
+        unlink(row, cells[row]);
+        alive[row >>> 6] &= ~(1L << row);
+        next[row] = free;
+        free = row + 1;
+        count--;
+    }
+
+    /**
+     * Move a member to another square, ahead of any already there.
+     * @param row The member's row.
+     * @param cell The index of the new square.
+     */
+    public void move(int row, int cell)
+    {
+        unlink(row, cells[row]);
+        cells[row] = cell;
+        link(row, cell);
+    }
+
+    /**
+     * @param row A row below getRows().
+     * @return true if the row holds a living member.
+     */
+    public boolean isAlive(int row)
+    {
+        return (alive[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param row A living member's row.
+     * @return The index of its square.
+     */
+    public int getCell(int row)
+    {
+        return cells[row];
+    }
+
+    /**
+     * @param row A living member's row.
+     * @return The step it was born on.
+     */
+    public int getBirth(int row)
+    {
+        return births[row];
+    }
+
+    /**
+     * @param row A living member's row.
+     * @return Its health.
+     */
+    public int getHealth(int row)
+    {
+        return health[row];
+    }
+
+    /**
+     * @param row A living member's row.
+     * @param level Its new health.
+     */
+    public void setHealth(int row, int level)
+    {
+        health[row] = (byte) level;
+    }
+
+    /**
+     * @param cell The index of a square.
+     * @return The row of the newest member there, or -1 if none is.
+     */
+    public int first(int cell)
+    {
+        return first[cell] - 1;
+    }
+
+    /**
+     * @param row A living member's row.
+     * @return The row of the next member in its square, or -1 if
+     *         there is none.
+     */
+    public int next(int row)
+    {
+        return next[row] - 1;
+    }
+
+    /**
+     * @return The number of rows ever used; every living member's
+     *         row is below this.
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * @return The number of living members.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Make room for a number of members, so that a store filled to a
+     * known size is not copied as it grows.
+     * @param capacity The number of members.
+     */
+    public void ensureCapacity(int capacity)
+    {
+        if(capacity > cells.length) {
+            int size = Math.max(capacity, cells.length + cells.length / 2);
+            cells = Arrays.copyOf(cells, size);
+            births = Arrays.copyOf(births, size);
+            next = Arrays.copyOf(next, size);
+            if(health != null) {
+                health = Arrays.copyOf(health, size);
+            }
+            alive = Arrays.copyOf(alive, (size + 63) / 64);
+        }
+    }
+
+    /**
+     * Remove every member.
+     */
+    public void clear()
+    {
+        Arrays.fill(alive, 0);
+        Arrays.fill(first, 0);
+        rows = 0;
+        count = 0;
+        free = 0;
+    }
+
+    /**
+     * Add a row at the start of the chain of its square.
+     * @param row The row.
+     * @param cell The index of the square.
+     */
+    private void link(int row, int cell)
+    {
+        next[row] = first[cell];
+        first[cell] = row + 1;
+    }
+
+    /**
+     * Take a row out of the chain of its square.
+     * @param row The row.
+     * @param cell The index of the square.
+     */
+    private void unlink(int row, int cell)
+    {
+        int before = -1;
+        int here = first[cell] - 1;
+        while(here != row) {
+            before = here;
+            here = next[here] - 1;
+        }
+        if(before < 0) {
+            first[cell] = next[row];
+        }
+        else {
+            next[before] = next[row];
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * A way of running one step of the simulation other than letting
+ * each thing act in turn on the calling thread.
+ * 
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public interface StepEngine
+{
+    /**
+     * Let every viable thing take its turn. Afterwards, things that
+     * are no longer viable are removed from the store, and newly born
+     * things are added to the end of it.
+     * @param step The number of the step being run.
+     * @param things The things in the field.
+     */
+    void step(int step, ThingStore things);
+    
+    /**
+     * Stop any worker threads. The engine cannot be used afterwards.
+     */
+    void shutdown();
+}
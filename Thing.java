@@ -10,8 +10,17 @@ import java.util.List;
  */
 public abstract class Thing
 {
+    // The slot of the animal occupying a square.
+    public static final int OCCUPANT_SLOT = 15;
+    
+    // A buffer for neighbour lookups, one per thread.
+    private static final ThreadLocal<int[]> neighbours =
+        ThreadLocal.withInitial(() -> new int[Field.MAX_NEIGHBOURS]);
+    
     // Whether the thing is viable or not.
     private boolean viable;
+    // The code of the thing's species.
+    private byte species;
     // The thing's field.
     private Field field;
     // The thing's position in the field.
@@ -25,6 +34,7 @@ public abstract class Thing
      */
     public Thing(Field field, Location location)
     {
+        species = Species.codeOf(getClass());
         viable = true;
         this.field = field;
         setLocation(location);
@@ -36,6 +46,35 @@ public abstract class Thing
      * @param newThings A list to receive newly born things.
      */
     abstract void act(List<Thing> newThings);
+    
+    /**
+     * Decide what to do this step, without changing the field, by
+     * recording intents. The intent engine calls this in place of
+     * act, and later carries out the intents that succeed.
+     * @param intents A list to receive the thing's intents.
+     */
+    abstract void plan(List<Intent> intents);
+    
+    /**
+     * Carry out one of the thing's intents.
+     * @param intent The intent, as recorded by plan.
+     * @param won false if the intent claimed a square that was 
+     *        given to something else.
+     * @param newThings A list to receive newly born things.
+     */
+    abstract void carryOut(Intent intent, boolean won, List<Thing> newThings);
+
+    /**
+     * Return the next step on which the thing needs to act, so that
+     * it can sleep through the steps in between. By default a thing
+     * acts every step. A thing that is woken early must do nothing.
+     * @param step The step just run.
+     * @return The next step on which to act; after step.
+     */
+    protected int nextWake(int step)
+    {
+        return step + 1;
+    }
 
     /**
      * Check whether the thing is viable or not.
@@ -45,6 +84,15 @@ public abstract class Thing
     {
         return viable;
     }
+    
+    /**
+     * Record that the thing is no longer viable, so that the
+     * simulator will drop it.
+     */
+    protected void setNotViable()
+    {
+        viable = false;
+    }
 
     /**
      * Indicate that the thing is no longer viable.
@@ -52,6 +100,15 @@ public abstract class Thing
      */
     abstract void setDead();
     
+    /**
+     * Return the code of the thing's species.
+     * @return The species code, as registered in Species.
+     */
+    protected byte getSpecies()
+    {
+        return species;
+    }
+    
     /**
      * Return the thing's location.
      * @return The thing's location.
@@ -61,18 +118,63 @@ public abstract class Thing
         return location;
     }
     
+    /**
+     * Return which of the things in its square this is. Together with
+     * the index of the square, the slot identifies the thing by where
+     * it is rather than by its place in any list.
+     * @return OCCUPANT_SLOT, for the single occupant of a square.
+     */
+    protected int getSlot()
+    {
+        return OCCUPANT_SLOT;
+    }
+    
     /**
      * Place the organism at the new location in the given field.
      * @param newLocation The organism's new location.
      */
     protected void setLocation(Location newLocation) {
         if(location != null) {
-            field.clear(location);
+            leave(location);
         }
         location = newLocation;
-        field.place(this, newLocation);
+        enter(newLocation);
+    }
+    
+    /**
+     * Take up the given location in the field. By default a thing
+     * is the single occupant of its location.
+     * @param location The location being entered.
+     */
+    protected void enter(Location location)
+    {
+        field.place(this, location);
+    }
+    
+    /**
+     * Give up the given location in the field, unless something
+     * else has since taken it over.
+     * @param location The location being left.
+     */
+    protected void leave(Location location)
+    {
+        if(field.getObjectAt(location) == this) {
+            field.clear(location);
+        }
     }
          
+    /**
+     * Return a buffer to receive neighbour indices from 
+     * Field.neighbours. The buffer is shared by all things acting
+     * on the current thread, so it is only valid until the next
+     * lookup.
+     * @return A buffer that holds Field.MAX_NEIGHBOURS indices.
+     */
+    protected static int[] neighbourBuffer()
+    {
+        return neighbours.get();
+    }
+    
     /**
      * Return the thing's field.
      * @return The thing's field.
@@ -0,0 +1,171 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The things in a field, in the order they take their turns, as
+ * handed to the step engines.
+ *
+ * Things that die are not taken out one at a time, which would move
+ * every thing after them along, over and over when a fire kills half
+ * the field. They stay in place until the end of the step, when one
+ * pass closes up the gaps, keeping the living things in order (the
+ * engines depend on the order). Things born during a step are
+ * gathered in a buffer that is kept from step to step, and appended
+ * all at once.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class ThingStore extends AbstractList<Thing> implements RandomAccess
+{
+    // The room made for things in a new store.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The things, in order, followed by unused room.
+    private Thing[] things;
+    // The number of things.
+    private int size;
+    // The things born during the current step.
+    private List<Thing> births;
+
+    /**
+     * Create an empty store.
+     */
+    public ThingStore()
+    {
+        things = new Thing[INITIAL_CAPACITY];
+        size = 0;
+        births = new ArrayList<>();
+    }
+
+    /**
+     * @param index The position of a thing in the store.
+     * @return The thing.
+     */
+    public Thing get(int index)
+    {
+        Objects.checkIndex(index, size);
+        return things[index];
+    }
+
+    /**
+     * Replace the thing at a position in the store.
+     * @param index The position.
+     * @param thing The new thing.
+     * @return The thing that was there.
+     */
+    public Thing set(int index, Thing thing)
+    {
+        Objects.checkIndex(index, size);
+        Thing old = things[index];
+        things[index] = thing;
+        return old;
+    }
+
+    /**
+     * @return The number of things in the store, living or dead.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Add a thing at the end of the store.
+     * @param thing The thing.
+     * @return true.
+     */
+    public boolean add(Thing thing)
+    {
+        ensureCapacity(size + 1);
+        things[size++] = thing;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Add many things at the end of the store at once, making room
+     * for them all first.
+     * @param newThings The things, in the order to add them.
+     * @return true if there were any.
+     */
+    public boolean addAll(Collection<? extends Thing> newThings)
+    {
+        Object[] added = newThings.toArray();
+        ensureCapacity(size + added.length);
+        System.arraycopy(added, 0, things, size, added.length);
+        size += added.length;
+        modCount++;
+        return added.length > 0;
+    }
+
+    /**
+     * Remove every thing that is no longer viable, in one pass,
+     * keeping the others in order.
+     * @return The number of things removed.
+     */
+    public int removeDead()
+    {
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            Thing thing = things[i];
+            if(thing.isViable()) {
+                things[kept++] = thing;
+            }
+        }
+        int removed = size - kept;
+        // Let the dead things be collected.
+        Arrays.fill(things, kept, size, null);
+        size = kept;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Return the buffer for the things born during the current step.
+     * The same list is used every step, so it must be emptied, by
+     * appendBirths or clear, before the next.
+     * @return The buffer of births.
+     */
+    public List<Thing> getBirths()
+    {
+        return births;
+    }
+
+    /**
+     * Add the things born during the step at the end of the store,
+     * and empty the buffer of births.
+     */
+    public void appendBirths()
+    {
+        addAll(births);
+        births.clear();
+    }
+
+    /**
+     * Remove every thing, and any births.
+     */
+    public void clear()
+    {
+        Arrays.fill(things, 0, size, null);
+        size = 0;
+        births.clear();
+        modCount++;
+    }
+
+    /**
+     * Make sure there is room for a number of things.
+     * @param capacity The number of things.
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if(capacity > things.length) {
+            things = Arrays.copyOf(things, Math.max(capacity, things.length + things.length / 2));
+        }
+    }
+}
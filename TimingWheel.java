@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A timing wheel: a ring of slots, one for each of the next few steps,
+ * holding the things due to act on that step. Scheduling a thing and
+ * taking the things due on a step each cost a constant amount of work,
+ * so things that sleep through a step cost nothing on that step.
+ *
+ * Things that die while asleep stay in their slot until it comes
+ * round, and are then dropped.
+ *
+ * @author Rebecca McCranie
+ * @version 2026.10.17
+ */
+public class TimingWheel
+{
+    // The number of slots; a power of two, so a step's slot is found
+    // with a mask.
+    private static final int SLOTS = 8;
+    // The longest a thing can sleep, in steps.
+    public static final int HORIZON = SLOTS - 1;
+
+    // The things due on each step, in slot step % SLOTS.
+    private List<List<Thing>> slots;
+    // An empty list to swap in for a slot when its things are taken.
+    private List<Thing> spare;
+    // The step whose things were last taken.
+    private int current;
+
+    /**
+     * Create an empty wheel.
+     */
+    public TimingWheel()
+    {
+        slots = new ArrayList<>();
+        for(int slot = 0; slot < SLOTS; slot++) {
+            slots.add(new ArrayList<>());
+        }
+        spare = new ArrayList<>();
+        current = 0;
+    }
+
+    /**
+     * Schedule a thing to act on the given step. A thing due further
+     * ahead than HORIZON steps is woken after HORIZON steps instead.
+     * @param thing The thing.
+     * @param step The step on which it is to act; after the step
+     *        whose things were last taken.
+     */
+    public void schedule(Thing thing, int step)
+    {
+        if(step - current > HORIZON) {
+            step = current + HORIZON;
+        }
+        else if(step <= current) {
+            step = current + 1;
+        }
+        slots.get(step & (SLOTS - 1)).add(thing);
+    }
+
+    /**
+     * Take the things due on a step, in the order they were scheduled.
+     * The list belongs to the wheel, and must be handed back with
+     * release before the next step is taken.
+     * @param step The step; one after the step last taken.
+     * @return The things due.
+     */
+    public List<Thing> takeDue(int step)
+    {
+        current = step;
+        int slot = step & (SLOTS - 1);
+        List<Thing> due = slots.get(slot);
+        slots.set(slot, spare);
+        spare = null;
+        return due;
+    }
+
+    /**
+     * Hand back the list given by takeDue, once its things have been
+     * dealt with.
+     * @param due The list.
+     */
+    public void release(List<Thing> due)
+    {
+        due.clear();
+        spare = due;
+    }
+
+    /**
+     * Move every viable thing on the wheel into a list, soonest due
+     * first, leaving the wheel empty.
+     * @param things The list to receive the things.
+     */
+    public void drainTo(List<Thing> things)
+    {
+        // Soonest due first.
+        for(int step = current + 1; step <= current + SLOTS; step++) {
+            List<Thing> slot = slots.get(step & (SLOTS - 1));
+            for(Thing thing : slot) {
+                if(thing.isViable()) {
+                    things.add(thing);
+                }
+            }
+            slot.clear();
+        }
+    }
+
+    /**
+     * Empty the wheel, and start again from the given step.
+     * @param step The step just run.
+     */
+    public void clear(int step)
+    {
+        for(List<Thing> slot : slots) {
+            slot.clear();
+        }
+        current = step;
+    }
+}
@@ -1,7 +1,5 @@
 import java.util.List;
-import java.util.Iterator;
-import java.util.Random;
-import java.util.ArrayList;
+import java.util.random.RandomGenerator;
 
 /**
  * A simple model of a tree.
@@ -18,17 +16,11 @@ public class Tree extends Plant
     // Characteristics shared by all trees (class variables).
     
     // The number of turns before a tree can reproduce.
-    private static final int NEW_TREE = 5;
-    // The likelihood of a tree dying if a fire comes.
-    private static final double TREE_FIRE_DEATH_PROBABILITY = 0.6;
-    // A shared random number generator.
-    private static final Random rand = Randomizer.getRandom();
+    static final int NEW_TREE = 5;
     //Maximum number of plants on a square. Should come from Plant??
     private static final int MAX_PLANTS = 10;
-    // Individual characteristics (instance fields).
-    // The tree's age.
-    private int age;
-    
+    // The intent value for spreading by replacing grass.
+    private static final int REPLACE_GRASS = 1;
     /**
      * Create a tree. 
      * 
@@ -39,13 +31,20 @@ public class Tree extends Plant
     {
         super(field, location);
         if(randomAge) {
-            age = rand.nextInt();
-        }
-        else {
-            age = 0;
+            RandomGenerator rand = Randomizer.getRandom();
+            setAge(rand.nextInt());
         }
     }
     
+    /**
+     * Trees spread every NEW_TREE steps.
+     * @return NEW_TREE.
+     */
+    protected int getSpreadInterval()
+    {
+        return NEW_TREE;
+    }
+    
       
     /**
      * Trees spread to an adjacent square every 5 turns,
@@ -57,7 +56,6 @@ public class Tree extends Plant
      */
     public void act(List<Thing> newTrees)
     {
-        incrementAge();
         if(isViable()) {
             spread(newTrees);
         }
@@ -68,52 +66,78 @@ public class Tree extends Plant
      */
     private boolean canSpread()
     {
+        int age = getAge();
         return (age > 0 && age % NEW_TREE == 0);
     }
-        
-    /**
-     * Increase the age. This is only used to determine when a tree
-     * can reproduce. Trees do not die of old age.
-     */
-    private void incrementAge()
-    {
-        age++;        
-    }
           
     /**
-     * New trees will grow in adjacent locations with enough space.
+     * A new tree will grow in an adjacent location with enough space,
+     * chosen at random. If every adjacent location is full, it
+     * replaces grass in one of them; if none has grass, no tree grows.
      * @param newTrees A list to return new trees.
      */
     public void spread(List<Thing> newPlants)
     {
-        // New trees spread into adjacent locations.
-        // Get a list of adjacent locations with space for trees.
         if(canSpread()) {
             Field field = getField();
-            List<Location> adjacent = field.adjacentLocations(getLocation());
-            boolean spread = false;
-            while(!spread){
-                for(Location location : adjacent) {
-                    ArrayList<Plant> currantPlants = location.getPlants();
-                    if(currantPlants.size() < 10) {
-                        Tree young = new Tree(false, field, location);
-                        newPlants.add(young);
-                        currantPlants.add(young);
-                        spread = true;
-                    }
-                    if(currantPlants.size() == 10) {
-                        for(Plant plant : currantPlants) {
-                            if(plant instanceof Grass) {
-                                plant.setDead();
-                                Tree young = new Tree(false, field, location);
-                                currantPlants.remove(plant);
-                                currantPlants.add(young);
-                                newPlants.add(young);
-                                spread = true;
-                            }
-                        }
-                    }
-                }       
+            int target = field.pickRoomNear(getLocation());
+            if(target >= 0) {
+                Tree young = new Tree(false, field, field.getLocation(target));
+                newPlants.add(young);
+                return;
+            }
+            // Every adjacent square is full: trees can replace grass.
+            target = field.pickGrassNear(getLocation());
+            if(target >= 0) {
+                field.findGrass(target).setDead();
+                Tree young = new Tree(false, field, field.getLocation(target));
+                newPlants.add(young);
+            }
+        }
+    }
+    
+    /**
+     * Plan the tree's step for the intent engine: it may intend to
+     * spread into an adjacent square with room or, if all
+     * are full, to replace grass in one of them.
+     * @param intents A list to receive the tree's intents.
+     */
+    void plan(List<Intent> intents)
+    {
+        if(isViable() && canSpread()) {
+            Field field = getField();
+            int target = field.pickRoomNear(getLocation());
+            if(target >= 0) {
+                intents.add(new Intent(Intent.Kind.SPAWN, this, target, false, 0));
+                return;
+            }
+            target = field.pickGrassNear(getLocation());
+            if(target >= 0) {
+                intents.add(new Intent(Intent.Kind.SPAWN, this, target, false, REPLACE_GRASS));
+            }
+        }
+    }
+    
+    /**
+     * Spread into the intended square if it still has room, or else
+     * replace grass there if that was intended and grass remains.
+     * @param intent The intent, as recorded by plan.
+     * @param won Always true, as spreading claims no square.
+     * @param newTrees A list to receive new trees.
+     */
+    void carryOut(Intent intent, boolean won, List<Thing> newTrees)
+    {
+        Field field = getField();
+        int target = intent.getTarget();
+        Location location = field.getLocation(target);
+        if(field.getPlantCount(target) < MAX_PLANTS) {
+            newTrees.add(new Tree(false, field, location));
+        }
+        else if(intent.getValue() == REPLACE_GRASS) {
+            Grass grass = field.findGrass(target);
+            if(grass != null) {
+                grass.setDead();
+                newTrees.add(new Tree(false, field, location));
             }
         }
     }